@@ -0,0 +1,114 @@
+package me.perch.bench;
+
+import com.google.gson.Gson;
+import me.perch.data.JobProfile;
+import me.perch.manager.JobConfigManager;
+import org.bukkit.Material;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.Ageable;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.logging.Logger;
+
+public final class Fixtures {
+
+    public static final String[] BUNDLED_JOBS = {"builder", "farmer", "fisherman", "lumberjack", "miner"};
+    public static final int MAX_LEVEL = 100;
+
+    private static final Logger LOGGER = Logger.getLogger("PerchJobs-jmh");
+    private static final Ageable FULLY_GROWN = stub(Ageable.class, (proxy, method, args) -> switch (method.getName()) {
+        case "getAge", "getMaximumAge" -> 7;
+        default -> fallback(proxy, method.getName(), args);
+    });
+
+    private Fixtures() {}
+
+    public static JobConfigManager bundledJobs() {
+        List<JobConfigManager.JobConfig> configs = new ArrayList<>();
+        for (String id : BUNDLED_JOBS) {
+            InputStream in = Fixtures.class.getResourceAsStream("/jobs/" + id + ".yml");
+            if (in == null) throw new IllegalStateException("Missing bundled job " + id);
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                configs.add(JobConfigManager.readJob(id, YamlConfiguration.loadConfiguration(reader), MAX_LEVEL, LOGGER));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return JobConfigManager.of(configs);
+    }
+
+    public static JobProfile profile(Collection<String> jobIds, Random random) {
+        JobProfile profile = new JobProfile();
+        for (String id : jobIds) {
+            profile.joinJob(id);
+            profile.setLevel(id, 1 + random.nextInt(60));
+            profile.setXp(id, random.nextDouble() * 500.0);
+        }
+        profile.setClean();
+        return profile;
+    }
+
+    public static String legacyJson(JobProfile profile) {
+        Map<String, Object> stored = new LinkedHashMap<>();
+        stored.put("levels", profile.snapshotLevels());
+        stored.put("xp", profile.snapshotXp());
+        stored.put("jobStartEpochDay", profile.snapshotJobStartEpochDay());
+        stored.put("activeJobs", profile.snapshotActiveJobs());
+        return new Gson().toJson(stored);
+    }
+
+    public static World world(UUID uid) {
+        return stub(World.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getUID" -> uid;
+            case "getName" -> "world";
+            case "getMinHeight" -> -64;
+            case "getMaxHeight" -> 320;
+            default -> fallback(proxy, method.getName(), args);
+        });
+    }
+
+    public static Block block(World world, int x, int y, int z, Material type) {
+        return stub(Block.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getWorld" -> world;
+            case "getX" -> x;
+            case "getY" -> y;
+            case "getZ" -> z;
+            case "getType" -> type;
+            case "getBlockData" -> FULLY_GROWN;
+            default -> fallback(proxy, method.getName(), args);
+        });
+    }
+
+    public static OfflinePlayer player(UUID uuid, String name) {
+        return stub(OfflinePlayer.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getUniqueId" -> uuid;
+            case "getName" -> name;
+            case "isOnline", "hasPlayedBefore" -> true;
+            default -> fallback(proxy, method.getName(), args);
+        });
+    }
+
+    private static <T> T stub(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(Fixtures.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object fallback(Object proxy, String name, Object[] args) {
+        return switch (name) {
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            case "toString" -> "stub@" + Integer.toHexString(System.identityHashCode(proxy));
+            default -> throw new UnsupportedOperationException(name);
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package me.perch.data;
+
+import me.perch.bench.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProfileCodecBenchmark {
+
+    @Param({"5", "32"})
+    public int jobCount;
+
+    private JobProfile profile;
+    private byte[] binary;
+    private String legacyJson;
+
+    @Setup
+    public void setup() {
+        List<String> jobIds = new ArrayList<>();
+        for (String id : Fixtures.BUNDLED_JOBS) {
+            if (jobIds.size() < jobCount) jobIds.add(id);
+        }
+        for (int i = jobIds.size(); i < jobCount; i++) jobIds.add("custom_job_" + i);
+
+        profile = Fixtures.profile(jobIds, new Random(42L));
+        binary = profile.serialize();
+        legacyJson = Fixtures.legacyJson(profile);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return profile.serialize();
+    }
+
+    @Benchmark
+    public JobProfile deserialize() {
+        return JobProfile.deserialize(binary);
+    }
+
+    @Benchmark
+    public JobProfile deserializeLegacyJson() {
+        return JobProfile.deserializeLegacyJson(legacyJson);
+    }
+}
@@ -0,0 +1,46 @@
+package me.perch.hooks;
+
+import me.perch.bench.Fixtures;
+import me.perch.data.JobProfile;
+import me.perch.manager.JobConfigManager;
+import org.bukkit.OfflinePlayer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlaceholderBenchmark {
+
+    @Param({"level_miner", "xp_miner", "xp_req_miner", "xp_percent_miner", "xp_total_miner",
+            "income_miner", "bonus_miner", "in_job_farmer", "total_level", "jobs_count", "jobs_list"})
+    public String placeholder;
+
+    private PerchJobsExpansion expansion;
+    private OfflinePlayer player;
+    private JobProfile profile;
+
+    @Setup
+    public void setup() {
+        JobConfigManager jobs = Fixtures.bundledJobs();
+        UUID uuid = new UUID(42L, 42L);
+        profile = Fixtures.profile(List.of("miner", "farmer"), new Random(42L));
+        expansion = new PerchJobsExpansion(null, id -> id.equals(uuid) ? profile : null, jobs, null);
+        player = Fixtures.player(uuid, "Perch");
+    }
+
+    @Benchmark
+    public String onRequest() {
+        return expansion.onRequest(player, placeholder);
+    }
+
+    @Benchmark
+    public String onRequestAfterXpGain() {
+        profile.addXp("miner", 0.001);
+        return expansion.onRequest(player, placeholder);
+    }
+}
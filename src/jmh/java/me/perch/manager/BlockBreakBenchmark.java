@@ -0,0 +1,103 @@
+package me.perch.manager;
+
+import me.perch.bench.Fixtures;
+import me.perch.data.JobProfile;
+import me.perch.metrics.MetricsRegistry;
+import me.perch.util.PlacedBlockTracker;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BlockBreakBenchmark {
+
+    private static final int EVENTS = 4096;
+    private static final int PROFILES = 256;
+
+    @Param({"10000", "200000"})
+    public int placedBlocks;
+
+    private JobConfigManager jobs;
+    private PlacedBlockTracker placedTracker;
+    private PlacedBlockTracker builderCooldown;
+    private BlockBreakFilter filter;
+    private BlockBreakFilter.Sink sink;
+    private double rewardedAmount;
+    private JobProfile[] profiles;
+    private Block[] blocks;
+    private Material[] tools;
+    private long baseMs;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42L);
+        jobs = Fixtures.bundledJobs();
+        placedTracker = new PlacedBlockTracker(3_600_000L);
+        builderCooldown = new PlacedBlockTracker(3_600_000L);
+
+        profiles = new JobProfile[PROFILES];
+        for (int i = 0; i < PROFILES; i++) {
+            profiles[i] = Fixtures.profile(List.of("miner", "lumberjack", "farmer"), random);
+        }
+
+        World world = Fixtures.world(UUID.randomUUID());
+        for (int i = 0; i < placedBlocks; i++) {
+            placedTracker.record(Fixtures.block(world, random.nextInt(4000) - 2000, random.nextInt(128), random.nextInt(4000) - 2000, Material.STONE));
+        }
+
+        Material[][] mix = {
+                {Material.DIAMOND_ORE, Material.DIAMOND_PICKAXE},
+                {Material.OAK_LOG, Material.DIAMOND_AXE},
+                {Material.WHEAT, Material.DIAMOND_HOE},
+                {Material.DIRT, Material.DIAMOND_PICKAXE}
+        };
+        blocks = new Block[EVENTS];
+        tools = new Material[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            Material[] pick = mix[random.nextInt(mix.length)];
+            blocks[i] = Fixtures.block(world, random.nextInt(4000) - 2000, random.nextInt(128), random.nextInt(4000) - 2000, pick[0]);
+            tools[i] = pick[1];
+        }
+        baseMs = System.currentTimeMillis();
+
+        MetricsRegistry metrics = new MetricsRegistry(false);
+        filter = new BlockBreakFilter(placedTracker, jobIndex -> false, true,
+                metrics.counter("rate_limited", ""), metrics.counter("invalid", ""),
+                metrics.counter("placed", ""), metrics.counter("not_grown", ""));
+        sink = new BlockBreakFilter.Sink() {
+            @Override
+            public void attempt(JobConfigManager.JobConfig cfg) {
+            }
+
+            @Override
+            public void reward(JobConfigManager.JobConfig cfg, double amount) {
+                rewardedAmount += amount;
+            }
+        };
+    }
+
+    @Benchmark
+    public int decide() {
+        int i = cursor++ & (EVENTS - 1);
+        Block block = blocks[i];
+        Material mat = block.getType();
+        Material tool = tools[i];
+        JobProfile profile = profiles[i & (PROFILES - 1)];
+        long now = baseMs + (cursor & 0x3FFFF);
+
+        JobConfigManager.BlockRule rule = jobs.getBlockRule(mat);
+        if (rule.isEmpty()) return 0;
+        if (builderCooldown.isRecent(block)) return 0;
+
+        return filter.evaluate(rule, profile, block, mat, tool, 0, false, now, sink);
+    }
+}
@@ -0,0 +1,84 @@
+package me.perch.manager;
+
+import me.perch.bench.Fixtures;
+import me.perch.data.JobProfile;
+import me.perch.util.ActionQueue;
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProcessActionBenchmark {
+
+    private static final int PLAYERS = 64;
+    private static final int ACTIONS = 2048;
+
+    private JobConfigManager jobs;
+    private JobConfigManager.JobConfig miner;
+    private JobProfile profile;
+    private UUID[] uuids;
+    private Map<UUID, JobProfile> activeProfiles;
+    private ActionQueue queue;
+    private ActionQueue.Batch batch;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42L);
+        jobs = Fixtures.bundledJobs();
+        miner = jobs.getJob("miner");
+        profile = Fixtures.profile(List.of("miner"), random);
+
+        uuids = new UUID[PLAYERS];
+        activeProfiles = new ConcurrentHashMap<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            uuids[i] = new UUID(random.nextLong(), random.nextLong());
+            activeProfiles.put(uuids[i], Fixtures.profile(List.of("miner", "lumberjack", "farmer"), random));
+        }
+        queue = new ActionQueue(ACTIONS);
+        batch = new ActionQueue.Batch(ACTIONS);
+    }
+
+    @Benchmark
+    public double applyReward() {
+        synchronized (profile) {
+            return JobManager.applyReward(profile, miner, 1.0);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACTIONS)
+    public double drainBatch() {
+        int minerIndex = miner.getIndex();
+        for (int i = 0; i < ACTIONS; i++) {
+            queue.offer(uuids[i & (PLAYERS - 1)], minerIndex, Material.DIAMOND_ORE, 1.0);
+        }
+
+        double paid = 0.0;
+        queue.drainTo(batch);
+        batch.group();
+        for (int g = 0; g < batch.groupCount(); g++) {
+            int head = batch.groupHead(g);
+            JobProfile target = activeProfiles.get(batch.uuid(head));
+            if (target == null) continue;
+            synchronized (target) {
+                for (int i = head; i != -1; i = batch.next(i)) {
+                    int jobIndex = batch.jobIndex(i);
+                    if (!target.isJoined(jobIndex)) continue;
+                    JobConfigManager.JobConfig cfg = jobs.getJob(jobIndex);
+                    if (cfg == null || !cfg.isValidBlock(batch.material(i))) continue;
+                    paid += JobManager.applyReward(target, cfg, batch.amount(i));
+                }
+            }
+        }
+        batch.clear();
+        return paid;
+    }
+}
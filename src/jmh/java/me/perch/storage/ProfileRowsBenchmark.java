@@ -0,0 +1,51 @@
+package me.perch.storage;
+
+import me.perch.bench.Fixtures;
+import me.perch.data.JobProfile;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProfileRowsBenchmark {
+
+    @Param({"5", "32"})
+    public int jobCount;
+
+    private JobProfile profile;
+    private long[] allJobs;
+    private List<ProfileStore.JobRow> rows;
+
+    @Setup
+    public void setup() {
+        List<String> jobIds = new ArrayList<>();
+        for (String id : Fixtures.BUNDLED_JOBS) {
+            if (jobIds.size() < jobCount) jobIds.add(id);
+        }
+        for (int i = jobIds.size(); i < jobCount; i++) jobIds.add("custom_job_" + i);
+
+        profile = Fixtures.profile(jobIds, new Random(42L));
+        profile.markAllDirty();
+        allJobs = profile.takeDirtyJobs();
+        rows = ProfileStore.dirtyRows(profile, allJobs);
+    }
+
+    @Benchmark
+    public List<ProfileStore.JobRow> dirtyRows() {
+        return ProfileStore.dirtyRows(profile, allJobs);
+    }
+
+    @Benchmark
+    public JobProfile restoreRows() {
+        JobProfile restored = new JobProfile();
+        for (ProfileStore.JobRow row : rows) {
+            restored.restoreJob(row.jobId(), row.level(), row.xp(), row.active(), row.startDay());
+        }
+        return restored;
+    }
+}
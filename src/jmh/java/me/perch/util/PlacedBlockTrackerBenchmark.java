@@ -0,0 +1,84 @@
+package me.perch.util;
+
+import me.perch.bench.Fixtures;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlacedBlockTrackerBenchmark {
+
+    private static final int PROBES = 8192;
+    private static final long TTL_MS = 3_600_000L;
+
+    @Param({"1000", "50000", "500000"})
+    public int size;
+
+    private PlacedBlockTracker tracker;
+    private long[] presentKeys;
+    private long[] absentKeys;
+    private Block[] blocks;
+    private long now;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42L);
+        tracker = new PlacedBlockTracker(TTL_MS);
+        now = System.currentTimeMillis();
+
+        presentKeys = new long[PROBES];
+        for (int i = 0; i < size; i++) {
+            long k = random.nextLong() | 1L;
+            tracker.record(k, now);
+            if (i < PROBES) presentKeys[i] = k;
+        }
+        for (int i = size; i < PROBES; i++) presentKeys[i] = presentKeys[i % size];
+
+        absentKeys = new long[PROBES];
+        for (int i = 0; i < PROBES; i++) absentKeys[i] = random.nextLong() | 1L;
+
+        World world = Fixtures.world(UUID.randomUUID());
+        blocks = new Block[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            blocks[i] = Fixtures.block(world, random.nextInt(4000) - 2000, random.nextInt(384) - 64, random.nextInt(4000) - 2000, Material.STONE);
+        }
+    }
+
+    @Benchmark
+    public void recordExisting() {
+        tracker.record(presentKeys[cursor++ & (PROBES - 1)], now);
+    }
+
+    @Benchmark
+    public boolean lookupHit() {
+        return tracker.isRecent(presentKeys[cursor++ & (PROBES - 1)], now);
+    }
+
+    @Benchmark
+    public boolean lookupMiss() {
+        return tracker.isRecent(absentKeys[cursor++ & (PROBES - 1)], now);
+    }
+
+    @Benchmark
+    public void recordBlock() {
+        tracker.record(blocks[cursor++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    public boolean lookupBlock() {
+        return tracker.isRecent(blocks[cursor++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    public boolean shouldBlockAndRecord() {
+        return tracker.shouldBlockAndRecord(blocks[cursor++ & (PROBES - 1)]);
+    }
+}
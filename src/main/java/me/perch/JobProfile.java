@@ -4,11 +4,12 @@ import com.google.gson.Gson;
 
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 public class JobProfile {
 
@@ -16,15 +17,43 @@ public class JobProfile {
 
     private static final int TENURE_MAX_PERCENT = 10;
 
-    private final Map<String, Integer> levels = new ConcurrentHashMap<>();
-    private final Map<String, Double> xp = new ConcurrentHashMap<>();
-    private final Map<String, Long> jobStartEpochDay = new ConcurrentHashMap<>();
-    private Set<String> activeJobs = ConcurrentHashMap.newKeySet();
+    private static final class Slots {
+        final int[] levels;
+        final double[] xp;
+        final long[] jobStartEpochDay;
+        final long[] knownMask;
+        final long[] joinedMask;
+        final long[] dirtyMask;
+
+        Slots(int size, Slots from) {
+            int words = (size + 63) >>> 6;
+            this.levels = Arrays.copyOf(from.levels, size);
+            this.xp = Arrays.copyOf(from.xp, size);
+            this.jobStartEpochDay = Arrays.copyOf(from.jobStartEpochDay, size);
+            this.knownMask = Arrays.copyOf(from.knownMask, words);
+            this.joinedMask = Arrays.copyOf(from.joinedMask, words);
+            this.dirtyMask = Arrays.copyOf(from.dirtyMask, words);
+        }
+
+        Slots() {
+            this.levels = new int[0];
+            this.xp = new double[0];
+            this.jobStartEpochDay = new long[0];
+            this.knownMask = new long[0];
+            this.joinedMask = new long[0];
+            this.dirtyMask = new long[0];
+        }
+    }
 
-    private transient volatile boolean dirty = false;
-    private transient long revision = 0L;
+    private volatile Slots slots = new Slots();
 
-    private void touch() {
+    private volatile boolean dirty = false;
+    private volatile long revision = 0L;
+    private volatile long journalSeq = 0L;
+    private volatile AtomicLongArray rateLimitState;
+
+    private void touch(int index) {
+        slots.dirtyMask[index >>> 6] |= 1L << index;
         dirty = true;
         revision++;
     }
@@ -33,116 +62,284 @@ public class JobProfile {
         return revision;
     }
 
+    public long getJournalSeq() {
+        return journalSeq;
+    }
+
+    public void setJournalSeq(long seq) {
+        if (seq > journalSeq) journalSeq = seq;
+    }
+
     private long todayEpochDay() {
         return LocalDate.now(ZoneId.systemDefault()).toEpochDay();
     }
 
-    public void joinJob(String job) {
-        levels.putIfAbsent(job, 1);
-        xp.putIfAbsent(job, 0.0);
-        activeJobs.add(job);
-        jobStartEpochDay.put(job, todayEpochDay());
-        touch();
+    private Slots ensureCapacity(int index) {
+        Slots s = slots;
+        if (index < s.levels.length) return s;
+        s = new Slots(Math.max(index + 1, JobIndex.size()), s);
+        slots = s;
+        return s;
+    }
+
+    private static boolean bit(long[] mask, int index) {
+        int word = index >>> 6;
+        return word < mask.length && (mask[word] & (1L << index)) != 0;
     }
 
-    public void leaveJob(String job) {
-        activeJobs.remove(job);
-        jobStartEpochDay.remove(job);
-        touch();
+    private static boolean isKnown(Slots s, int index) {
+        return index >= 0 && bit(s.knownMask, index);
     }
 
-    public boolean isJoined(String job) {
-        return activeJobs.contains(job);
+    private boolean isKnown(int index) {
+        return isKnown(slots, index);
     }
 
-    public void addXp(String job, double amount) {
-        if (!levels.containsKey(job)) return;
-        xp.merge(job, amount, Double::sum);
-        touch();
+    public boolean isJoined(int index) {
+        return index >= 0 && bit(slots.joinedMask, index);
     }
 
-    public void addXpWithTenure(String job, double baseAmount) {
-        if (!levels.containsKey(job)) return;
-        double mult = getTenureMultiplier(job);
-        xp.merge(job, baseAmount * mult, Double::sum);
-        touch();
+    public int getLevel(int index) {
+        Slots s = slots;
+        if (!isKnown(s, index)) return 1;
+        return s.levels[index];
     }
 
-    public void setLevel(String job, int level) {
-        levels.put(job, level);
-        touch();
+    public double getXp(int index) {
+        double[] x = slots.xp;
+        return (index >= 0 && index < x.length) ? x[index] : 0.0;
     }
 
-    public void setXp(String job, double amount) {
-        xp.put(job, amount);
-        touch();
+    public long getJobStartEpochDay(int index) {
+        long[] s = slots.jobStartEpochDay;
+        return (index >= 0 && index < s.length) ? s[index] : 0L;
     }
 
-    public int getLevel(String job) { return levels.getOrDefault(job, 1); }
-    public double getXp(String job) { return xp.getOrDefault(job, 0.0); }
+    public synchronized void joinJob(int index) {
+        Slots s = ensureCapacity(index);
+        if (!isKnown(s, index)) {
+            s.knownMask[index >>> 6] |= 1L << index;
+            s.levels[index] = 1;
+        }
+        s.joinedMask[index >>> 6] |= 1L << index;
+        s.jobStartEpochDay[index] = todayEpochDay();
+        touch(index);
+    }
+
+    public synchronized void leaveJob(int index) {
+        if (index < 0) return;
+        Slots s = ensureCapacity(index);
+        s.joinedMask[index >>> 6] &= ~(1L << index);
+        s.jobStartEpochDay[index] = 0L;
+        touch(index);
+    }
 
-    public long getJobStartEpochDay(String job) {
-        return jobStartEpochDay.getOrDefault(job, 0L);
+    public synchronized void addXp(int index, double amount) {
+        Slots s = slots;
+        if (!isKnown(s, index)) return;
+        s.xp[index] += amount;
+        touch(index);
     }
 
-    public int getTenureBonusPercent(String job) {
-        if (!isJoined(job)) return 0;
-        long start = jobStartEpochDay.getOrDefault(job, 0L);
+    public synchronized void addXpWithTenure(int index, double baseAmount) {
+        Slots s = slots;
+        if (!isKnown(s, index)) return;
+        s.xp[index] += baseAmount * getTenureMultiplier(index);
+        touch(index);
+    }
+
+    public synchronized void setLevel(int index, int level) {
+        Slots s = ensureCapacity(index);
+        s.knownMask[index >>> 6] |= 1L << index;
+        s.levels[index] = level;
+        touch(index);
+    }
+
+    public synchronized void setXp(int index, double amount) {
+        Slots s = ensureCapacity(index);
+        s.xp[index] = amount;
+        touch(index);
+    }
+
+    public int getTenureBonusPercent(int index) {
+        if (!isJoined(index)) return 0;
+        long start = getJobStartEpochDay(index);
         if (start <= 0L) return 0;
         long days = Math.max(0L, todayEpochDay() - start);
         return (int) Math.min((long) TENURE_MAX_PERCENT, days);
     }
 
-    public double getTenureMultiplier(String job) {
-        int pct = getTenureBonusPercent(job);
+    public double getTenureMultiplier(int index) {
+        int pct = getTenureBonusPercent(index);
         return 1.0 + (pct / 100.0);
     }
 
+    public AtomicLongArray getRateLimitState(int minSize) {
+        AtomicLongArray state = rateLimitState;
+        if (state != null && state.length() >= minSize) return state;
+        return growRateLimitState(minSize);
+    }
+
+    private synchronized AtomicLongArray growRateLimitState(int minSize) {
+        AtomicLongArray state = rateLimitState;
+        if (state != null && state.length() >= minSize) return state;
+        AtomicLongArray grown = new AtomicLongArray(Math.max(minSize, JobIndex.size()));
+        if (state != null) {
+            for (int i = 0; i < state.length(); i++) grown.set(i, state.get(i));
+        }
+        rateLimitState = grown;
+        return grown;
+    }
+
+    int slotCount() {
+        return slots.levels.length;
+    }
+
+    boolean isKnownAt(int index) {
+        return isKnown(index);
+    }
+
+    void restore(int index, boolean known, int level, double amount, boolean joined, long startEpochDay) {
+        Slots s = ensureCapacity(index);
+        long bit = 1L << index;
+        if (known) {
+            s.knownMask[index >>> 6] |= bit;
+            s.levels[index] = level;
+        }
+        if (joined) s.joinedMask[index >>> 6] |= bit;
+        s.xp[index] = amount;
+        s.jobStartEpochDay[index] = joined ? startEpochDay : 0L;
+    }
+
+    public int getJoinedCount() {
+        int count = 0;
+        for (long word : slots.joinedMask) count += Long.bitCount(word);
+        return count;
+    }
+
+    public void joinJob(String job) { joinJob(JobIndex.of(job)); }
+    public void leaveJob(String job) { leaveJob(JobIndex.find(job)); }
+    public boolean isJoined(String job) { return isJoined(JobIndex.find(job)); }
+    public void addXp(String job, double amount) { addXp(JobIndex.find(job), amount); }
+    public void addXpWithTenure(String job, double baseAmount) { addXpWithTenure(JobIndex.find(job), baseAmount); }
+    public void setLevel(String job, int level) { setLevel(JobIndex.of(job), level); }
+    public void setXp(String job, double amount) { setXp(JobIndex.of(job), amount); }
+    public int getLevel(String job) { return getLevel(JobIndex.find(job)); }
+    public double getXp(String job) { return getXp(JobIndex.find(job)); }
+    public long getJobStartEpochDay(String job) { return getJobStartEpochDay(JobIndex.find(job)); }
+    public int getTenureBonusPercent(String job) { return getTenureBonusPercent(JobIndex.find(job)); }
+    public double getTenureMultiplier(String job) { return getTenureMultiplier(JobIndex.find(job)); }
+
     public Map<String, Integer> getLevelsMap() {
-        return levels;
+        return snapshotLevels();
     }
 
     public boolean isDirty() { return dirty; }
     public void setClean() { dirty = false; }
 
-    public String serialize() { return GSON.toJson(this); }
-
-    public static JobProfile deserialize(String json) {
-        JobProfile temp = GSON.fromJson(json, JobProfile.class);
-        JobProfile safeProfile = new JobProfile();
+    public synchronized long[] takeDirtyJobs() {
+        long[] dirtyMask = slots.dirtyMask;
+        long[] taken = dirtyMask.clone();
+        Arrays.fill(dirtyMask, 0L);
+        return taken;
+    }
 
-        if (temp.levels != null) safeProfile.levels.putAll(temp.levels);
-        if (temp.xp != null) safeProfile.xp.putAll(temp.xp);
+    public synchronized void restoreDirtyJobs(long[] mask) {
+        Slots s = slots;
+        if (mask.length > s.dirtyMask.length) s = ensureCapacity((mask.length << 6) - 1);
+        for (int w = 0; w < mask.length; w++) s.dirtyMask[w] |= mask[w];
+        dirty = true;
+    }
 
-        if (temp.activeJobs != null) {
-            safeProfile.activeJobs.addAll(temp.activeJobs);
-        } else {
-            safeProfile.activeJobs.addAll(safeProfile.levels.keySet());
+    public synchronized void markAllDirty() {
+        Slots s = slots;
+        for (int i = 0; i < s.levels.length; i++) {
+            if (isKnown(s, i) || isJoined(i) || s.xp[i] != 0.0) s.dirtyMask[i >>> 6] |= 1L << i;
         }
+        dirty = true;
+    }
 
-        if (temp.jobStartEpochDay != null) safeProfile.jobStartEpochDay.putAll(temp.jobStartEpochDay);
+    public synchronized void restoreJob(String job, int level, double amount, boolean joined, long startEpochDay) {
+        restore(JobIndex.of(job), true, level, amount, joined, startEpochDay);
+    }
+
+    public synchronized byte[] serialize() {
+        return ProfileCodec.encode(this);
+    }
+
+    public static JobProfile deserialize(byte[] data) {
+        return ProfileCodec.decode(data);
+    }
+
+    public static JobProfile deserializeLegacyJson(String json) {
+        Stored temp = GSON.fromJson(json, Stored.class);
+        JobProfile safeProfile = new JobProfile();
+        if (temp == null) return safeProfile;
+
+        if (temp.levels != null) temp.levels.forEach((job, lvl) -> {
+            if (lvl != null) safeProfile.setLevel(job, lvl);
+        });
+        if (temp.xp != null) temp.xp.forEach((job, amount) -> {
+            if (amount != null) safeProfile.setXp(job, amount);
+        });
+
+        Set<String> active = temp.activeJobs != null ? temp.activeJobs : temp.levels != null ? temp.levels.keySet() : Set.of();
+        for (String job : active) {
+            int idx = JobIndex.of(job);
+            safeProfile.ensureCapacity(idx).joinedMask[idx >>> 6] |= 1L << idx;
+        }
 
         long today = safeProfile.todayEpochDay();
-        for (String job : safeProfile.activeJobs) {
-            safeProfile.jobStartEpochDay.putIfAbsent(job, today);
+        for (String job : active) {
+            int idx = JobIndex.of(job);
+            Long start = temp.jobStartEpochDay != null ? temp.jobStartEpochDay.get(job) : null;
+            safeProfile.slots.jobStartEpochDay[idx] = start != null ? start : today;
         }
 
+        safeProfile.dirty = true;
         return safeProfile;
     }
 
-    public Map<String, Integer> snapshotLevels() {
-        return new HashMap<>(levels);
+    public synchronized Map<String, Integer> snapshotLevels() {
+        Slots s = slots;
+        Map<String, Integer> out = new HashMap<>();
+        for (int i = 0; i < s.levels.length; i++) {
+            if (isKnown(s, i)) out.put(JobIndex.name(i), s.levels[i]);
+        }
+        return out;
     }
 
-    public Map<String, Double> snapshotXp() {
-        return new HashMap<>(xp);
+    public synchronized Map<String, Double> snapshotXp() {
+        Slots s = slots;
+        Map<String, Double> out = new HashMap<>();
+        for (int i = 0; i < s.xp.length; i++) {
+            if (isKnown(s, i) || s.xp[i] != 0.0) out.put(JobIndex.name(i), s.xp[i]);
+        }
+        return out;
     }
 
-    public Set<String> snapshotActiveJobs() {
-        return new HashSet<>(activeJobs);
+    public synchronized Set<String> snapshotActiveJobs() {
+        Slots s = slots;
+        Set<String> out = new HashSet<>();
+        for (int i = 0; i < s.levels.length; i++) {
+            if (isJoined(i)) out.add(JobIndex.name(i));
+        }
+        return out;
+    }
+
+    public synchronized Map<String, Long> snapshotJobStartEpochDay() {
+        Slots s = slots;
+        Map<String, Long> out = new HashMap<>();
+        for (int i = 0; i < s.jobStartEpochDay.length; i++) {
+            if (isJoined(i)) out.put(JobIndex.name(i), s.jobStartEpochDay[i]);
+        }
+        return out;
     }
 
-    public Map<String, Long> snapshotJobStartEpochDay() {
-        return new HashMap<>(jobStartEpochDay);
+    private static final class Stored {
+        Map<String, Integer> levels;
+        Map<String, Double> xp;
+        Map<String, Long> jobStartEpochDay;
+        Set<String> activeJobs;
     }
 }
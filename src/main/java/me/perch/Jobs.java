@@ -1,13 +1,19 @@
 package me.perch;
 
-import com.zaxxer.hikari.HikariConfig;
-import com.zaxxer.hikari.HikariDataSource;
 import me.perch.hooks.PerchJobsExpansion;
 import me.perch.manager.DebugManager;
 import me.perch.manager.JobConfigManager;
 import me.perch.manager.JobManager;
 import me.perch.manager.LeaderboardManager;
+import me.perch.manager.PeriodLeaderboards;
+import me.perch.metrics.MetricsExporter;
+import me.perch.metrics.MetricsRegistry;
+import me.perch.storage.LeaderboardStore;
+import me.perch.storage.ProfileStore;
+import me.perch.storage.SqlStorage;
+import me.perch.sync.ProfileSync;
 import me.perch.util.EconomyUtil;
+import me.perch.util.IoExecutor;
 import me.perch.util.MessageUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -15,18 +21,20 @@ import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
-import java.sql.Connection;
-import java.sql.SQLException;
-import java.sql.Statement;
 
 public class Jobs extends JavaPlugin {
 
     private static Jobs instance;
-    private HikariDataSource dataSource;
+    private SqlStorage storage;
+    private IoExecutor ioExecutor;
+    private MetricsRegistry metrics;
+    private MetricsExporter metricsExporter;
     private JobManager jobManager;
     private JobConfigManager jobConfigManager;
     private LeaderboardManager leaderboardManager;
+    private PeriodLeaderboards periodLeaderboards;
     private DebugManager debugManager;
+    private PerchJobsExpansion placeholderExpansion;
     private MessageUtil messageUtil;
     private EconomyUtil economyUtil;
     private FileConfiguration messagesConfig;
@@ -35,18 +43,24 @@ public class Jobs extends JavaPlugin {
     public void onEnable() {
         instance = this;
         saveDefaultConfig();
+        this.messageUtil = new MessageUtil();
         loadMessages();
+        this.metrics = new MetricsRegistry(getConfig().getBoolean("metrics.enabled", false));
         initDatabase();
+        if (storage == null) return;
+        this.ioExecutor = new IoExecutor(storage.getPoolSize(), getConfig().getInt("io.max-queued", 10000), getLogger());
+        ioExecutor.execute(this::migrateLegacyProfiles);
 
-        this.messageUtil = new MessageUtil();
         this.economyUtil = new EconomyUtil(this);
         this.jobConfigManager = new JobConfigManager(this);
         this.leaderboardManager = new LeaderboardManager(this);
+        this.periodLeaderboards = new PeriodLeaderboards(this);
         this.debugManager = new DebugManager(this);
         this.jobManager = new JobManager(this);
 
         if (Bukkit.getPluginManager().getPlugin("PlaceholderAPI") != null) {
-            new PerchJobsExpansion(this).register();
+            this.placeholderExpansion = new PerchJobsExpansion(this);
+            placeholderExpansion.register();
         }
 
         JobsCommand cmdExecutor = new JobsCommand(this);
@@ -62,60 +76,123 @@ public class Jobs extends JavaPlugin {
         }
 
         long interval = getConfig().getLong("auto-save-interval", 12000L);
-        Bukkit.getScheduler().runTaskTimerAsynchronously(this, jobManager::saveAllDirty, interval, interval);
+        Bukkit.getScheduler().runTaskTimer(this, () -> ioExecutor.execute(jobManager::saveAllDirty), interval, interval);
+
+        registerMetrics();
+        this.metricsExporter = new MetricsExporter(this, metrics);
+        metricsExporter.start();
     }
 
     @Override
     public void onDisable() {
+        if (metricsExporter != null) metricsExporter.stop();
         if (jobManager != null) {
             jobManager.shutdown();
         }
-        if (dataSource != null) dataSource.close();
+        if (periodLeaderboards != null) {
+            periodLeaderboards.shutdown();
+        }
+        if (economyUtil != null) {
+            economyUtil.flushAll();
+        }
+        if (ioExecutor != null) ioExecutor.shutdown(getConfig().getLong("io.shutdown-timeout-ms", 5000L));
+        if (storage != null) storage.close();
     }
 
     public void loadMessages() {
         File msgFile = new File(getDataFolder(), "messages.yml");
         if (!msgFile.exists()) saveResource("messages.yml", false);
         this.messagesConfig = YamlConfiguration.loadConfiguration(msgFile);
+        messageUtil.load(messagesConfig);
     }
 
     private void initDatabase() {
-        HikariConfig config = new HikariConfig();
-        config.setJdbcUrl("jdbc:sqlite:" + new File(getDataFolder(), "jobs.db").getAbsolutePath());
-        config.setDriverClassName("org.sqlite.JDBC");
-        config.setMaximumPoolSize(2);
-        config.setConnectionInitSql("PRAGMA journal_mode=WAL; PRAGMA synchronous=NORMAL; PRAGMA busy_timeout=5000;");
-
-        this.dataSource = new HikariDataSource(config);
-
-        try (Connection conn = dataSource.getConnection();
-             Statement stmt = conn.createStatement()) {
+        SqlStorage sql = SqlStorage.create(this);
+        try {
+            sql.init();
+            this.storage = sql;
+            getLogger().info("Using " + sql.getName() + " storage.");
+        } catch (Exception e) {
+            e.printStackTrace();
+            sql.close();
+            getServer().getPluginManager().disablePlugin(this);
+        }
+    }
 
-            stmt.execute("CREATE TABLE IF NOT EXISTS job_data (" +
-                    "uuid VARCHAR(36) PRIMARY KEY, " +
-                    "data TEXT)");
+    private void registerMetrics() {
+        metrics.gauge("perchjobs_online_profiles", "Profiles of players currently online", jobManager::getActiveProfileCount);
+        metrics.gauge("perchjobs_offline_cache_size", "Offline profiles held in the cache", () -> jobManager.getOfflineCache().size());
+        metrics.gauge("perchjobs_action_queue_depth", "Actions waiting to be applied", jobManager::getActionQueueDepth);
+        metrics.gauge("perchjobs_action_queue_peak_depth", "Deepest the action queue has been", jobManager::getActionQueuePeakDepth);
+        metrics.counter("perchjobs_action_queue_offered_total", "Actions offered to the action queue", jobManager::getActionQueueOfferedCount);
+        metrics.counter("perchjobs_action_queue_overflow_total", "Actions applied inline because the queue was full", jobManager::getActionQueueOverflowCount);
+        metrics.counter("perchjobs_burst_events_total", "Block breaks folded into bursts", jobManager::getBurstEventCount);
+        metrics.counter("perchjobs_bursts_total", "Coalesced bursts flushed as one reward", jobManager::getBurstCount);
+        metrics.gauge("perchjobs_save_pending", "Dirty profiles waiting to be saved", () -> jobManager.getProfileSaver().getPendingCount());
+        metrics.gauge("perchjobs_journal_open_checkpoints", "Journal checkpoints waiting for their profiles to be saved", () -> jobManager.getProfileSaver().getOpenCheckpoints());
+        metrics.gauge("perchjobs_load_in_flight", "Profile loads currently running", () -> jobManager.getProfileLoader().getInFlightCount());
+        metrics.register("perchjobs_load_seconds", "Time to load one profile", jobManager.getProfileLoader().getLoadLatency());
+        metrics.register("perchjobs_load_batch_seconds", "Time to load one batch of profiles", jobManager.getProfileLoader().getBatchLatency());
+
+        metrics.gauge("perchjobs_io_permits", "Storage permits available to I/O tasks", ioExecutor::getPermits);
+        metrics.gauge("perchjobs_io_queued", "I/O tasks waiting for a storage permit", ioExecutor::getQueued);
+        metrics.gauge("perchjobs_io_active", "I/O tasks holding a storage permit", ioExecutor::getActive);
+        metrics.counter("perchjobs_io_completed_total", "I/O tasks finished", ioExecutor::getCompleted);
+        metrics.counter("perchjobs_io_failed_total", "I/O tasks that threw", ioExecutor::getFailed);
+        metrics.counter("perchjobs_io_rejected_total", "I/O tasks refused because the queue was full", ioExecutor::getRejected);
+        metrics.register("perchjobs_io_wait_seconds", "Time an I/O task waited before running", ioExecutor.getQueueWait(), "stage", "queue");
+        metrics.register("perchjobs_io_wait_seconds", "Time an I/O task waited before running", ioExecutor.getPoolWait(), "stage", "permit");
+        metrics.register("perchjobs_io_run_seconds", "Time an I/O task spent running", ioExecutor.getExecution());
+
+        metrics.gauge("perchjobs_db_connections", "Pooled database connections", storage::getActiveConnections, "state", "active");
+        metrics.gauge("perchjobs_db_connections", "Pooled database connections", storage::getIdleConnections, "state", "idle");
+        metrics.gauge("perchjobs_db_connections_awaiting", "Threads waiting for a database connection", storage::getThreadsAwaitingConnection);
+
+        ProfileSync sync = jobManager.getSync();
+        if (sync != null) {
+            metrics.gauge("perchjobs_sync_known_owners", "Players whose profile owner is known to the sync bus", sync::getKnownOwners);
+        }
 
-            stmt.execute("CREATE TABLE IF NOT EXISTS job_levels (" +
-                    "uuid VARCHAR(36) NOT NULL, " +
-                    "job_id VARCHAR(32) NOT NULL, " +
-                    "level INT NOT NULL, " +
-                    "xp DOUBLE NOT NULL, " +
-                    "PRIMARY KEY (uuid, job_id))");
+        if (placeholderExpansion != null) {
+            metrics.counter("perchjobs_placeholder_cache_total", "Placeholder renders by cache outcome", placeholderExpansion::getCacheHits, "result", "hit");
+            metrics.counter("perchjobs_placeholder_cache_total", "Placeholder renders by cache outcome", placeholderExpansion::getCacheMisses, "result", "miss");
+        }
 
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_job_rank ON job_levels(job_id, level DESC, xp DESC)");
+        metrics.gauge("perchjobs_economy_pending_players", "Players with an undeposited payout", economyUtil::getPendingPlayers);
+        metrics.gauge("perchjobs_economy_pending_amount", "Money earned but not yet deposited", economyUtil::getPendingTotal);
+        metrics.counter("perchjobs_economy_deposited_cents_total", "Money deposited through Vault, in cents", economyUtil::getDepositedCents);
+        metrics.counter("perchjobs_economy_deposit_calls_total", "Deposits made through Vault", economyUtil::getDepositCalls);
+        metrics.gauge("perchjobs_economy_flush_seconds", "Duration of the last payout flush", () -> economyUtil.getLastFlushNanos() / 1e9);
+        metrics.gauge("perchjobs_economy_flush_max_seconds", "Longest payout flush so far", () -> economyUtil.getMaxFlushNanos() / 1e9);
+        metrics.gauge("perchjobs_economy_async_flush", "1 when payouts are flushed off the main thread", () -> economyUtil.isAsyncFlush() ? 1 : 0);
+        metrics.counter("perchjobs_economy_over_budget_total", "Payout flushes that ran over their tick budget", economyUtil::getOverBudgetTicks);
+    }
 
-        } catch (SQLException e) {
+    private void migrateLegacyProfiles() {
+        long start = System.nanoTime();
+        try {
+            int migrated = storage.migrateLegacyProfiles(getConfig().getInt("storage.migration-batch-size", 500));
+            if (migrated > 0) {
+                long ms = (System.nanoTime() - start) / 1_000_000L;
+                getLogger().info("Migrated " + migrated + " legacy profile(s) to per-job rows in " + ms + "ms.");
+            }
+        } catch (Exception e) {
             e.printStackTrace();
-            getServer().getPluginManager().disablePlugin(this);
         }
     }
 
     public static Jobs getInstance() { return instance; }
-    public HikariDataSource getDataSource() { return dataSource; }
+    public SqlStorage getStorage() { return storage; }
+    public IoExecutor getIoExecutor() { return ioExecutor; }
+    public MetricsRegistry getMetrics() { return metrics; }
+    public ProfileStore getProfileStore() { return storage; }
+    public LeaderboardStore getLeaderboardStore() { return storage; }
     public JobManager getJobManager() { return jobManager; }
     public JobConfigManager getJobConfigManager() { return jobConfigManager; }
     public LeaderboardManager getLeaderboardManager() { return leaderboardManager; }
+    public PeriodLeaderboards getPeriodLeaderboards() { return periodLeaderboards; }
     public DebugManager getDebugManager() { return debugManager; }
+    public PerchJobsExpansion getPlaceholderExpansion() { return placeholderExpansion; }
     public MessageUtil getMessageUtil() { return messageUtil; }
     public EconomyUtil getEconomyUtil() { return economyUtil; }
     public FileConfiguration getMessagesConfig() { return messagesConfig; }
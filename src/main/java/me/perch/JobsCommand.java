@@ -2,7 +2,11 @@ package me.perch;
 
 import me.perch.data.JobProfile;
 import me.perch.manager.JobConfigManager;
+import me.perch.manager.LeaderboardManager;
+import me.perch.metrics.MetricsRegistry;
+import me.perch.util.MessageTemplate;
 import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -14,16 +18,71 @@ import org.jetbrains.annotations.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 public class JobsCommand implements CommandExecutor, TabCompleter {
 
+    private static final int TOP_PAGE_SIZE = 10;
+
     private final Jobs plugin;
 
     public JobsCommand(Jobs plugin) {
         this.plugin = plugin;
     }
 
+    private void setLevel(CommandSender sender, UUID uuid, String name, JobConfigManager.JobConfig cfg, JobProfile profile, int level) {
+        String jobId = cfg.getId();
+        synchronized (profile) {
+            if (!profile.isJoined(jobId)) profile.joinJob(jobId);
+            profile.setLevel(jobId, level);
+            profile.setXp(jobId, 0.0);
+        }
+        plugin.getLeaderboardManager().update(jobId, uuid, level, 0.0);
+        plugin.getJobManager().saveOffline(uuid, profile);
+
+        String ok = "Set " + name + "'s " + jobId + " level to " + level + ".";
+        if (sender instanceof Player p) plugin.getMessageUtil().sendMessage(p, "<green>" + ok);
+        else sender.sendMessage(ok);
+
+        Player target = Bukkit.getPlayer(uuid);
+        if (target != null) {
+            plugin.getMessageUtil().sendMessage(target, "<green>Your " + cfg.getDisplayName() + " level was set to <white>" + level + "<green>.");
+        }
+    }
+
+    private void sendTop(CommandSender sender, String jobId, int page) {
+        LeaderboardManager.Snapshot snapshot = plugin.getLeaderboardManager().getSnapshot(jobId);
+        int pages = Math.max(1, snapshot.getPages(TOP_PAGE_SIZE));
+        int shown = Math.min(Math.max(1, page), pages);
+
+        plugin.getMessageUtil().sendMessage(sender, "<gradient:#adf3fd:#FD9113><bold>" + capitalize(jobId)
+                + " Top</bold></gradient> <gray>(" + shown + "/" + pages + ")");
+        List<LeaderboardManager.Entry> entries = snapshot.page(shown, TOP_PAGE_SIZE);
+        if (entries.isEmpty()) plugin.getMessageUtil().sendMessage(sender, " <gray>No players yet.");
+        for (LeaderboardManager.Entry e : entries) {
+            String name = e.name() != null ? e.name() : "---";
+            plugin.getMessageUtil().sendMessage(sender, " <gray>#" + e.rank() + " <yellow>" + name
+                    + " <gray>Lvl <white>" + e.level() + " <gray>(" + (int) e.xp() + " XP)");
+        }
+
+        if (sender instanceof Player p) {
+            int rank = plugin.getLeaderboardManager().getRank(jobId, p.getUniqueId());
+            if (rank > 0) plugin.getMessageUtil().sendMessage(p, " <gray>Your rank: <white>#" + rank);
+        }
+    }
+
+    private void sendStats(CommandSender sender) {
+        MetricsRegistry metrics = plugin.getMetrics();
+        List<String> lines = new ArrayList<>();
+        lines.add("<gold>PerchJobs stats" + (metrics.isEnabled() ? "" : " <gray>(timers and counters disabled; set metrics.enabled)"));
+        for (String line : metrics.summary()) lines.add(" <gray>" + line);
+        for (String line : lines) {
+            if (sender instanceof Player p) plugin.getMessageUtil().sendMessage(p, line);
+            else sender.sendMessage(line.replaceAll("<[^>]+>", ""));
+        }
+    }
+
     private String capitalize(String str) {
         if (str == null || str.isEmpty()) return str;
         return str.substring(0, 1).toUpperCase() + str.substring(1);
@@ -40,10 +99,21 @@ public class JobsCommand implements CommandExecutor, TabCompleter {
             plugin.reloadConfig();
             plugin.loadMessages();
             plugin.getJobConfigManager().reload();
+            plugin.getJobManager().loadOnlinePlayers();
+            plugin.getMetrics().setEnabled(plugin.getConfig().getBoolean("metrics.enabled", false));
             sendMsg(sender, "command.reload-success");
             return true;
         }
 
+        if (args.length > 0 && args[0].equalsIgnoreCase("stats")) {
+            if (!sender.hasPermission("perchjobs.admin")) {
+                sendMsg(sender, "command.no-permission");
+                return true;
+            }
+            sendStats(sender);
+            return true;
+        }
+
         if (args.length > 0 && args[0].equalsIgnoreCase("setlevel")) {
             if (!sender.hasPermission("perchjobs.admin.setlevel")) {
                 sendMsg(sender, "command.no-permission");
@@ -55,7 +125,8 @@ public class JobsCommand implements CommandExecutor, TabCompleter {
                 return true;
             }
 
-            Player target = Bukkit.getPlayerExact(args[1]);
+            Player online = Bukkit.getPlayerExact(args[1]);
+            OfflinePlayer target = online != null ? online : Bukkit.getOfflinePlayerIfCached(args[1]);
             if (target == null) {
                 if (sender instanceof Player p) plugin.getMessageUtil().sendMessage(p, "<red>Player not found.");
                 else sender.sendMessage("Player not found.");
@@ -88,24 +159,49 @@ public class JobsCommand implements CommandExecutor, TabCompleter {
             int max = cfg.getMaxLevel();
             if (level > max) level = max;
 
-            JobProfile profile = plugin.getJobManager().getProfile(target.getUniqueId());
-            if (profile == null) {
-                if (sender instanceof Player p) plugin.getMessageUtil().sendMessage(p, "<red>Profile not loaded.");
-                else sender.sendMessage("Profile not loaded.");
+            UUID uuid = target.getUniqueId();
+            String name = target.getName() != null ? target.getName() : args[1];
+            int newLevel = level;
+            plugin.getJobManager().getProfileAsync(uuid).whenComplete((profile, ex) ->
+                    Bukkit.getScheduler().runTask(plugin, () -> {
+                        if (profile == null) {
+                            if (ex != null) ex.printStackTrace();
+                            if (sender instanceof Player p) plugin.getMessageUtil().sendMessage(p, "<red>Profile not loaded.");
+                            else sender.sendMessage("Profile not loaded.");
+                            return;
+                        }
+                        setLevel(sender, uuid, name, cfg, profile, newLevel);
+                    }));
+            return true;
+        }
+
+        if (args.length > 0 && args[0].equalsIgnoreCase("top")) {
+            if (!sender.hasPermission("perchjobs.top")) {
+                sendMsg(sender, "command.no-permission");
+                return true;
+            }
+            if (args.length < 2 || args.length > 3) {
+                plugin.getMessageUtil().sendMessage(sender, "<red>Usage: /jobs top <job> [page]");
                 return true;
             }
 
-            synchronized (profile) {
-                if (!profile.isJoined(jobId)) profile.joinJob(jobId);
-                profile.setLevel(jobId, level);
-                profile.setXp(jobId, 0.0);
+            String jobId = args[1].toLowerCase(Locale.ROOT);
+            if (plugin.getJobConfigManager().getJob(jobId) == null) {
+                sendMsg(sender, "jobs.invalid-job");
+                return true;
             }
 
-            String ok = "Set " + target.getName() + "'s " + jobId + " level to " + level + ".";
-            if (sender instanceof Player p) plugin.getMessageUtil().sendMessage(p, "<green>" + ok);
-            else sender.sendMessage(ok);
+            int page = 1;
+            if (args.length == 3) {
+                try {
+                    page = Integer.parseInt(args[2]);
+                } catch (NumberFormatException e) {
+                    plugin.getMessageUtil().sendMessage(sender, "<red>Page must be a number.");
+                    return true;
+                }
+            }
 
-            plugin.getMessageUtil().sendMessage(target, "<green>Your " + cfg.getDisplayName() + " level was set to <white>" + level + "<green>.");
+            sendTop(sender, jobId, page);
             return true;
         }
 
@@ -153,7 +249,7 @@ public class JobsCommand implements CommandExecutor, TabCompleter {
 
                 synchronized (profile) {
                     if (profile.isJoined(jobRaw)) {
-                        sendMsg(player, "jobs.already-joined", "%job%", jobDisplay);
+                        sendMsg(player, "jobs.already-joined", MessageTemplate.Slot.JOB, jobDisplay);
                         return true;
                     }
 
@@ -168,9 +264,10 @@ public class JobsCommand implements CommandExecutor, TabCompleter {
                     }
 
                     profile.joinJob(jobRaw);
+                    plugin.getLeaderboardManager().update(jobRaw, player.getUniqueId(), profile.getLevel(jobRaw), profile.getXp(jobRaw));
                 }
 
-                sendMsg(player, "jobs.join-success", "%job%", jobDisplay);
+                sendMsg(player, "jobs.join-success", MessageTemplate.Slot.JOB, jobDisplay);
             }
             case "leave" -> {
                 if (!player.hasPermission("perchjobs.leave")) {
@@ -187,13 +284,13 @@ public class JobsCommand implements CommandExecutor, TabCompleter {
 
                 synchronized (profile) {
                     if (!profile.isJoined(jobRaw)) {
-                        sendMsg(player, "jobs.not-joined", "%job%", jobDisplay);
+                        sendMsg(player, "jobs.not-joined", MessageTemplate.Slot.JOB, jobDisplay);
                         return true;
                     }
                     profile.leaveJob(jobRaw);
                 }
 
-                sendMsg(player, "jobs.leave-success", "%job%", jobDisplay);
+                sendMsg(player, "jobs.leave-success", MessageTemplate.Slot.JOB, jobDisplay);
             }
             case "info" -> {
                 if (!player.hasPermission("perchjobs.info")) {
@@ -243,14 +340,18 @@ public class JobsCommand implements CommandExecutor, TabCompleter {
             if (sender.hasPermission("perchjobs.join")) suggestions.add("join");
             if (sender.hasPermission("perchjobs.leave")) suggestions.add("leave");
             if (sender.hasPermission("perchjobs.info")) suggestions.add("info");
+            if (sender.hasPermission("perchjobs.top")) suggestions.add("top");
             if (sender.hasPermission("perchjobs.admin")) {
                 suggestions.add("reload");
                 suggestions.add("debug");
+                suggestions.add("stats");
             }
             if (sender.hasPermission("perchjobs.admin.setlevel")) suggestions.add("setlevel");
         } else if (args.length == 2) {
             if (args[0].equalsIgnoreCase("setlevel") && sender.hasPermission("perchjobs.admin.setlevel")) {
                 suggestions.addAll(Bukkit.getOnlinePlayers().stream().map(Player::getName).collect(Collectors.toList()));
+            } else if (args[0].equalsIgnoreCase("top") && sender.hasPermission("perchjobs.top")) {
+                suggestions.addAll(plugin.getJobConfigManager().getAllJobIds());
             } else if (sender instanceof Player player) {
                 JobProfile profile = plugin.getJobManager().getProfile(player.getUniqueId());
                 if (profile != null) {
@@ -286,18 +387,14 @@ public class JobsCommand implements CommandExecutor, TabCompleter {
     }
 
     private void sendUsage(Player p) {
-        for (String line : plugin.getMessagesConfig().getStringList("command.usage")) {
-            plugin.getMessageUtil().sendMessage(p, line);
-        }
+        plugin.getMessageUtil().sendLines(p, "command.usage");
     }
 
     private void sendMsg(CommandSender sender, String key) {
-        String msg = plugin.getMessagesConfig().getString(key);
-        if (msg != null) plugin.getMessageUtil().sendMessage(sender, msg);
+        plugin.getMessageUtil().send(sender, key);
     }
 
-    private void sendMsg(CommandSender sender, String key, String ph, String val) {
-        String msg = plugin.getMessagesConfig().getString(key);
-        if (msg != null) plugin.getMessageUtil().sendMessage(sender, msg.replace(ph, val));
+    private void sendMsg(CommandSender sender, String key, MessageTemplate.Slot slot, String val) {
+        plugin.getMessageUtil().send(sender, key, slot, val);
     }
 }
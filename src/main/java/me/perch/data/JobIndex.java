@@ -0,0 +1,47 @@
+package me.perch.data;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class JobIndex {
+
+    private static final Map<String, Integer> indices = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[0];
+
+    private JobIndex() {}
+
+    public static int of(String jobId) {
+        Integer idx = indices.get(jobId);
+        if (idx != null) return idx;
+        return intern(jobId);
+    }
+
+    public static int find(String jobId) {
+        if (jobId == null) return -1;
+        Integer idx = indices.get(jobId);
+        return idx == null ? -1 : idx;
+    }
+
+    public static String name(int index) {
+        String[] n = names;
+        return (index >= 0 && index < n.length) ? n[index] : null;
+    }
+
+    public static int size() {
+        return names.length;
+    }
+
+    private static synchronized int intern(String jobId) {
+        Integer idx = indices.get(jobId);
+        if (idx != null) return idx;
+
+        String[] n = names;
+        int next = n.length;
+        String[] grown = Arrays.copyOf(n, next + 1);
+        grown[next] = jobId;
+        names = grown;
+        indices.put(jobId, next);
+        return next;
+    }
+}
@@ -0,0 +1,178 @@
+package me.perch.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public final class ProfileCodec {
+
+    public static final byte MAGIC = (byte) 0xB7;
+    public static final byte VERSION = 1;
+
+    private static final int FLAG_KNOWN = 1;
+    private static final int FLAG_JOINED = 1 << 1;
+    private static final int FLAG_XP = 1 << 2;
+
+    private static final double XP_SCALE = 1000.0;
+
+    private ProfileCodec() {}
+
+    public static byte[] encode(JobProfile profile) {
+        int slots = profile.slotCount();
+        int[] present = new int[slots];
+        int count = 0;
+        for (int i = 0; i < slots; i++) {
+            if (profile.isKnownAt(i) || profile.isJoined(i) || profile.getXp(i) != 0.0) present[count++] = i;
+        }
+
+        Writer out = new Writer(16 + count * 16);
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+
+        out.writeVarInt(count);
+        for (int n = 0; n < count; n++) {
+            out.writeString(JobIndex.name(present[n]));
+        }
+
+        for (int n = 0; n < count; n++) {
+            int idx = present[n];
+            boolean known = profile.isKnownAt(idx);
+            boolean joined = profile.isJoined(idx);
+            double xp = profile.getXp(idx);
+
+            int flags = 0;
+            if (known) flags |= FLAG_KNOWN;
+            if (joined) flags |= FLAG_JOINED;
+            if (xp != 0.0) flags |= FLAG_XP;
+            out.writeByte(flags);
+
+            if (known) out.writeVarInt(profile.getLevel(idx));
+            if (xp != 0.0) out.writeVarLong(zigzag(Math.round(xp * XP_SCALE)));
+            if (joined) out.writeVarLong(zigzag(profile.getJobStartEpochDay(idx)));
+        }
+
+        return out.toByteArray();
+    }
+
+    public static JobProfile decode(byte[] data) {
+        Reader in = new Reader(data);
+        if ((byte) in.readByte() != MAGIC) throw new IllegalArgumentException("Not a binary job profile");
+        int version = in.readByte();
+        if (version != VERSION) throw new IllegalArgumentException("Unsupported job profile version " + version);
+
+        int count = in.readVarInt();
+        if (count < 0 || count > data.length) throw new IllegalArgumentException("Corrupt job dictionary size " + count);
+
+        int[] dictionary = new int[count];
+        for (int n = 0; n < count; n++) {
+            dictionary[n] = JobIndex.of(in.readString());
+        }
+
+        JobProfile profile = new JobProfile();
+        for (int n = 0; n < count; n++) {
+            int flags = in.readByte();
+            int level = (flags & FLAG_KNOWN) != 0 ? in.readVarInt() : 1;
+            double xp = (flags & FLAG_XP) != 0 ? unzigzag(in.readVarLong()) / XP_SCALE : 0.0;
+            long start = (flags & FLAG_JOINED) != 0 ? unzigzag(in.readVarLong()) : 0L;
+            profile.restore(dictionary[n], (flags & FLAG_KNOWN) != 0, level, xp, (flags & FLAG_JOINED) != 0, start);
+        }
+        return profile;
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static final class Writer {
+        private byte[] buf;
+        private int pos;
+
+        Writer(int initial) {
+            this.buf = new byte[Math.max(16, initial)];
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        void writeVarInt(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void writeVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void writeString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        int readByte() {
+            if (pos >= buf.length) throw new IllegalArgumentException("Truncated job profile");
+            return buf[pos++] & 0xFF;
+        }
+
+        int readVarInt() {
+            int result = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                result |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+            throw new IllegalArgumentException("Malformed varint in job profile");
+        }
+
+        long readVarLong() {
+            long result = 0L;
+            for (int shift = 0; shift < 70; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+            throw new IllegalArgumentException("Malformed varlong in job profile");
+        }
+
+        String readString() {
+            int len = readVarInt();
+            if (len < 0 || pos + len > buf.length) throw new IllegalArgumentException("Truncated job id in job profile");
+            String s = new String(buf, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return s;
+        }
+    }
+}
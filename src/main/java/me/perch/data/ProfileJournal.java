@@ -0,0 +1,239 @@
+package me.perch.data;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+public final class ProfileJournal implements Closeable {
+
+    private static final int MAGIC = 0x504A4E4C;
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private static final byte TYPE_END = 0;
+    private static final byte TYPE_DELTA = 1;
+    private static final byte TYPE_JOB = 2;
+
+    private static final int DELTA_BYTES = 1 + 8 + 16 + 2 + 8 + 4 + 4;
+    private static final String SUFFIX = ".journal";
+
+    public record Entry(long seq, UUID uuid, String job, double xpDelta, int levelDelta) {}
+
+    private final File dir;
+    private final int segmentBytes;
+    private final Logger logger;
+    private final ByteBuffer scratch = ByteBuffer.allocate(512);
+    private final CRC32C crc = new CRC32C();
+
+    private MappedByteBuffer buffer;
+    private long segmentId = -1L;
+    private boolean[] jobWritten = new boolean[0];
+    private long nextSeq = 1L;
+    private int records;
+    private volatile boolean unsynced;
+    private boolean failed;
+
+    public ProfileJournal(File dir, int segmentBytes, Logger logger) {
+        this.dir = dir;
+        this.segmentBytes = Math.max(64 * 1024, segmentBytes);
+        this.logger = logger;
+    }
+
+    public List<Entry> readAll() throws IOException {
+        List<Entry> out = new ArrayList<>();
+        for (long id : segmentIds()) {
+            File file = segmentFile(id);
+            try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                read(buf, file.getName(), out);
+            }
+        }
+        return out;
+    }
+
+    private void read(ByteBuffer buf, String segment, List<Entry> out) {
+        if (buf.remaining() < HEADER_BYTES || buf.getInt() != MAGIC || buf.get() != VERSION) {
+            logger.warning("Ignoring journal segment " + segment + " with an unknown header.");
+            return;
+        }
+        buf.position(HEADER_BYTES);
+
+        Map<Integer, String> jobs = new HashMap<>();
+        try {
+            while (buf.hasRemaining()) {
+                int start = buf.position();
+                byte type = buf.get();
+                if (type == TYPE_END) return;
+
+                if (type == TYPE_JOB) {
+                    int index = buf.getShort() & 0xFFFF;
+                    byte[] name = new byte[buf.getShort() & 0xFFFF];
+                    buf.get(name);
+                    if (!checksum(buf, start)) return;
+                    jobs.put(index, new String(name, StandardCharsets.UTF_8));
+                } else if (type == TYPE_DELTA) {
+                    long seq = buf.getLong();
+                    UUID uuid = new UUID(buf.getLong(), buf.getLong());
+                    int index = buf.getShort() & 0xFFFF;
+                    double xpDelta = buf.getDouble();
+                    int levelDelta = buf.getInt();
+                    if (!checksum(buf, start)) return;
+                    String job = jobs.get(index);
+                    if (job != null) out.add(new Entry(seq, uuid, job, xpDelta, levelDelta));
+                } else {
+                    logger.warning("Journal segment " + segment + " has an unknown record at " + start + "; stopping replay of this segment.");
+                    return;
+                }
+            }
+        } catch (BufferUnderflowException ignored) {
+        }
+    }
+
+    private boolean checksum(ByteBuffer buf, int start) {
+        int end = buf.position();
+        crc.reset();
+        crc.update(buf.duplicate().position(start).limit(end));
+        return buf.getInt() == (int) crc.getValue();
+    }
+
+    public synchronized void open(long firstSeq) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("Could not create " + dir);
+        nextSeq = Math.max(1L, firstSeq);
+        long[] ids = segmentIds();
+        startSegment(ids.length == 0 ? 0L : ids[ids.length - 1] + 1);
+    }
+
+    public synchronized long append(UUID uuid, int jobIndex, double xpDelta, int levelDelta) {
+        if (buffer == null || failed) return 0L;
+        try {
+            if (buffer.remaining() < DELTA_BYTES + jobRecordBytes(jobIndex) + 1) startSegment(segmentId + 1);
+
+            if (jobIndex >= jobWritten.length || !jobWritten[jobIndex]) {
+                byte[] name = JobIndex.name(jobIndex).getBytes(StandardCharsets.UTF_8);
+                scratch.clear();
+                scratch.put(TYPE_JOB).putShort((short) jobIndex).putShort((short) name.length).put(name);
+                writeScratch();
+                if (jobIndex >= jobWritten.length) jobWritten = Arrays.copyOf(jobWritten, Math.max(jobIndex + 1, JobIndex.size()));
+                jobWritten[jobIndex] = true;
+            }
+
+            long seq = Math.max(nextSeq, System.currentTimeMillis() * 1000L);
+            nextSeq = seq + 1;
+            scratch.clear();
+            scratch.put(TYPE_DELTA)
+                    .putLong(seq)
+                    .putLong(uuid.getMostSignificantBits())
+                    .putLong(uuid.getLeastSignificantBits())
+                    .putShort((short) jobIndex)
+                    .putDouble(xpDelta)
+                    .putInt(levelDelta);
+            writeScratch();
+            records++;
+            unsynced = true;
+            return seq;
+        } catch (IOException e) {
+            failed = true;
+            logger.warning("Journal disabled after write failure: " + e.getMessage());
+            return 0L;
+        }
+    }
+
+    public synchronized void observe(long seq) {
+        if (seq >= nextSeq) nextSeq = seq + 1;
+    }
+
+    private void writeScratch() {
+        scratch.flip();
+        crc.reset();
+        crc.update(scratch.duplicate());
+        buffer.put(scratch);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    private int jobRecordBytes(int jobIndex) {
+        return 1 + 2 + 2 + JobIndex.name(jobIndex).length() * 3 + 4;
+    }
+
+    public void sync() {
+        if (!unsynced) return;
+        MappedByteBuffer b;
+        synchronized (this) {
+            b = buffer;
+            unsynced = false;
+        }
+        if (b != null) b.force();
+    }
+
+    public synchronized long rotate() throws IOException {
+        if (buffer == null || failed) return segmentId;
+        if (records > 0) startSegment(segmentId + 1);
+        return segmentId;
+    }
+
+    public void truncateBefore(long id) {
+        for (long old : segmentIds()) {
+            if (old >= id) continue;
+            File file = segmentFile(old);
+            if (!file.delete()) logger.warning("Could not delete journal segment " + file.getName());
+        }
+    }
+
+    public synchronized long getCurrentSegment() {
+        return segmentId;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (buffer != null) buffer.force();
+        buffer = null;
+    }
+
+    private void startSegment(long id) throws IOException {
+        if (buffer != null) buffer.force();
+        File file = segmentFile(id);
+        try (FileChannel ch = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        buffer.putInt(MAGIC).put(VERSION);
+        buffer.position(HEADER_BYTES);
+        segmentId = id;
+        jobWritten = new boolean[0];
+        records = 0;
+    }
+
+    private File segmentFile(long id) {
+        return new File(dir, String.format("%016x", id) + SUFFIX);
+    }
+
+    private long[] segmentIds() {
+        String[] names = dir.list((d, n) -> n.endsWith(SUFFIX));
+        if (names == null) return new long[0];
+        long[] ids = new long[names.length];
+        int count = 0;
+        for (String n : names) {
+            try {
+                ids[count] = Long.parseUnsignedLong(n.substring(0, n.length() - SUFFIX.length()), 16);
+                count++;
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        ids = Arrays.copyOf(ids, count);
+        Arrays.sort(ids);
+        return ids;
+    }
+}
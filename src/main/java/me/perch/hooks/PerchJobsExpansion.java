@@ -1,19 +1,52 @@
 package me.perch.hooks;
 
 import me.perch.Jobs;
+import me.perch.data.JobIndex;
 import me.perch.data.JobProfile;
+import me.perch.manager.JobConfigManager;
+import me.perch.manager.LeaderboardManager;
+import me.perch.manager.PeriodLeaderboards;
+import me.perch.manager.PeriodLeaderboards.Period;
+import me.perch.util.NumberFormats;
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import org.bukkit.OfflinePlayer;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Arrays;
 import java.util.Locale;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 public class PerchJobsExpansion extends PlaceholderExpansion {
 
+    private static final int MAX_RESOLVERS = 4096;
+    private static final int MAX_PLAYER_CACHES = 4096;
+
     private final Jobs plugin;
+    private final Function<UUID, JobProfile> profiles;
+    private final JobConfigManager jobConfigs;
+    private final LeaderboardManager leaderboards;
+    private final Map<String, Resolver> resolvers = new ConcurrentHashMap<>();
+    private final Map<UUID, PlayerCache> playerCaches = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    public PerchJobsExpansion(Jobs plugin) {
+        this(plugin, plugin.getJobManager()::getProfile, plugin.getJobConfigManager(), plugin.getLeaderboardManager());
+    }
+
+    PerchJobsExpansion(Jobs plugin, Function<UUID, JobProfile> profiles, JobConfigManager jobConfigs, LeaderboardManager leaderboards) {
+        this.plugin = plugin;
+        this.profiles = profiles;
+        this.jobConfigs = jobConfigs;
+        this.leaderboards = leaderboards;
+    }
 
-    public PerchJobsExpansion(Jobs plugin) { this.plugin = plugin; }
     @Override public @NotNull String getIdentifier() { return "perchjobs"; }
     @Override public @NotNull String getAuthor() { return "Perch"; }
     @Override public @NotNull String getVersion() { return plugin.getDescription().getVersion(); }
@@ -24,137 +57,319 @@ public class PerchJobsExpansion extends PlaceholderExpansion {
         return str.substring(0, 1).toUpperCase() + str.substring(1);
     }
 
-    private String fmt0(long v) {
-        return String.valueOf(v);
-    }
-
-    private String fmt0(double v) {
-        if (Double.isNaN(v) || Double.isInfinite(v)) return "0";
-        return String.valueOf(Math.round(v));
-    }
+    private enum Kind {
+        LIMIT(false, false), JOBS_COUNT(false, true), JOBS_LIST(false, true), TOTAL_LEVEL(false, true),
+        COUNT(true, true), RANK(true, true), TOP_NAME(true, false), TOP_NAME_INVALID(true, false),
+        PERIOD_COUNT(true, false), PERIOD_RANK(true, false), PERIOD_XP(true, false),
+        PERIOD_TOP_NAME(true, false), PERIOD_TOP_XP(true, false),
+        BONUS(false, false), LEVEL(false, true), INCOME(false, true), XP_TOTAL(false, true), XP(false, true),
+        XP_REQ(false, true), XP_PERCENT(false, true), IN_JOB(false, true), UNKNOWN(false, false);
 
-    private String fmt1(double v) {
-        if (Double.isNaN(v) || Double.isInfinite(v)) return "0.0";
-        return String.format(Locale.US, "%.1f", v);
-    }
+        private final boolean board;
+        private final boolean cached;
 
-    private String fmt2(double v) {
-        if (Double.isNaN(v) || Double.isInfinite(v)) return "0.00";
-        return String.format(Locale.US, "%.2f", v);
+        Kind(boolean board, boolean cached) {
+            this.board = board;
+            this.cached = cached;
+        }
     }
 
-    @Override
-    public String onRequest(OfflinePlayer player, @NotNull String params) {
-        if (player == null) return "";
-
-        String p = params.toLowerCase(Locale.ROOT);
+    private record Resolver(Kind kind, String job, int jobIndex, int rank, Period period, int slot) {
 
-        if (p.equals("limit")) {
-            if (player.isOnline()) return fmt0(plugin.getJobManager().getPlayerJobLimit(player.getPlayer()));
-            return fmt0(plugin.getConfig().getInt("jobs.limit", 2));
+        int index() {
+            return jobIndex >= 0 ? jobIndex : JobIndex.find(job);
         }
+    }
 
-        JobProfile profile = plugin.getJobManager().getProfile(player.getUniqueId());
+    private static final class PlayerCache {
+        private JobProfile profile;
+        private Resolver[] keys = new Resolver[8];
+        private String[] values = new String[8];
+        private long[] stamps = new long[8];
+        private long[] configStamps = new long[8];
 
-        if (p.equals("jobs_count")) {
-            if (profile == null) return "0";
-            long count = plugin.getJobConfigManager().getAllJobIds().stream()
-                    .filter(profile::isJoined)
-                    .count();
-            return fmt0(count);
+        synchronized void bind(JobProfile owner) {
+            if (owner == profile) return;
+            profile = owner;
+            Arrays.fill(keys, null);
+            Arrays.fill(values, null);
         }
 
-        if (p.equals("jobs_list")) {
-            if (profile == null) return "";
-            return plugin.getJobConfigManager().getAllJobIds().stream()
-                    .filter(profile::isJoined)
-                    .map(this::capitalize)
-                    .collect(Collectors.joining(", "));
+        synchronized String get(Resolver r, long stamp, long configStamp) {
+            int slot = r.slot();
+            if (slot >= keys.length || keys[slot] != r) return null;
+            if (stamps[slot] != stamp || configStamps[slot] != configStamp) return null;
+            return values[slot];
         }
 
-        if (p.equals("total_level")) {
-            if (profile == null) return "0";
-            long total = 0;
-            for (String job : plugin.getJobConfigManager().getAllJobIds()) {
-                total += profile.getLevel(job);
+        synchronized void put(Resolver r, long stamp, long configStamp, String value) {
+            int slot = r.slot();
+            if (slot >= keys.length) {
+                int size = Math.max(slot + 1, keys.length * 2);
+                keys = Arrays.copyOf(keys, size);
+                values = Arrays.copyOf(values, size);
+                stamps = Arrays.copyOf(stamps, size);
+                configStamps = Arrays.copyOf(configStamps, size);
             }
-            return fmt0(total);
+            keys[slot] = r;
+            values[slot] = value;
+            stamps[slot] = stamp;
+            configStamps[slot] = configStamp;
         }
+    }
 
-        if (p.startsWith("count_")) return fmt0(plugin.getLeaderboardManager().getCount(p.replace("count_", "")));
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    private Resolver resolver(String params) {
+        Resolver r = resolvers.get(params);
+        if (r != null) return r;
+        if (resolvers.size() >= MAX_RESOLVERS) {
+            resolvers.clear();
+            playerCaches.clear();
+            nextSlot.set(0);
+        }
+        Resolver parsed = parse(params.toLowerCase(Locale.ROOT));
+        r = new Resolver(parsed.kind(), parsed.job(), parsed.jobIndex(), parsed.rank(), parsed.period(), nextSlot.getAndIncrement());
+        Resolver prev = resolvers.putIfAbsent(params, r);
+        return prev != null ? prev : r;
+    }
 
-        if (p.startsWith("rank_")) {
-            int rank = plugin.getLeaderboardManager().getRank(p.replace("rank_", ""), player.getUniqueId());
-            return (rank == 0) ? ">100" : String.valueOf(rank);
+    private static Resolver parse(String p) {
+        switch (p) {
+            case "limit": return of(Kind.LIMIT, null);
+            case "jobs_count": return of(Kind.JOBS_COUNT, null);
+            case "jobs_list": return of(Kind.JOBS_LIST, null);
+            case "total_level": return of(Kind.TOTAL_LEVEL, null);
         }
 
+        if (p.startsWith("count_")) return of(Kind.COUNT, p.replace("count_", ""));
+        if (p.startsWith("rank_")) return of(Kind.RANK, p.replace("rank_", ""));
+
         if (p.startsWith("top_name_")) {
             try {
                 String[] parts = p.split("_");
                 int rank = Integer.parseInt(parts[parts.length - 1]);
                 String job = p.replace("top_name_", "").replace("_" + rank, "");
-                var topUUID = plugin.getLeaderboardManager().getPlayerAtRank(job, rank);
-                return (topUUID != null) ? plugin.getServer().getOfflinePlayer(topUUID).getName() : "---";
-            } catch (Exception e) { return "---"; }
+                return new Resolver(Kind.TOP_NAME, job, JobIndex.find(job), rank, null, -1);
+            } catch (Exception e) {
+                return of(Kind.TOP_NAME_INVALID, null);
+            }
         }
 
-        if (profile == null) return "";
+        int split = p.indexOf('_');
+        Period period = split > 0 ? Period.parse(p.substring(0, split)) : null;
+        if (period != null) return parsePeriod(period, p.substring(split + 1));
 
-        if (p.startsWith("bonus_")) {
-            String job = p.substring("bonus_".length());
-            return fmt1(profile.getTenureBonusPercent(job));
+        if (p.startsWith("bonus_")) return of(Kind.BONUS, p.substring("bonus_".length()));
+        if (p.startsWith("level_")) return of(Kind.LEVEL, p.replace("level_", ""));
+        if (p.startsWith("income_")) return of(Kind.INCOME, p.replace("income_", ""));
+        if (p.startsWith("xp_total_")) return of(Kind.XP_TOTAL, p.replace("xp_total_", ""));
+        if (p.startsWith("xp_") && !p.contains("_req") && !p.contains("_percent") && !p.contains("_total")) {
+            return of(Kind.XP, p.replace("xp_", ""));
         }
+        if (p.startsWith("xp_req_")) return of(Kind.XP_REQ, p.replace("xp_req_", ""));
+        if (p.startsWith("xp_percent_")) return of(Kind.XP_PERCENT, p.replace("xp_percent_", ""));
+        if (p.startsWith("in_job_")) return of(Kind.IN_JOB, p.replace("in_job_", ""));
+
+        return of(Kind.UNKNOWN, null);
+    }
 
-        if (p.startsWith("level_")) {
-            String job = p.replace("level_", "");
-            return String.valueOf(profile.getLevel(job));
+    private static Resolver parsePeriod(Period period, String p) {
+        if (p.startsWith("top_name_") || p.startsWith("top_xp_")) {
+            Kind kind = p.startsWith("top_name_") ? Kind.PERIOD_TOP_NAME : Kind.PERIOD_TOP_XP;
+            try {
+                int last = p.lastIndexOf('_');
+                int rank = Integer.parseInt(p.substring(last + 1));
+                String job = p.substring(kind == Kind.PERIOD_TOP_NAME ? "top_name_".length() : "top_xp_".length(), last);
+                return new Resolver(kind, job, JobIndex.find(job), rank, period, -1);
+            } catch (Exception e) {
+                return of(Kind.TOP_NAME_INVALID, null);
+            }
         }
+        if (p.startsWith("rank_")) return new Resolver(Kind.PERIOD_RANK, p.substring(5), -1, 0, period, -1);
+        if (p.startsWith("xp_")) return new Resolver(Kind.PERIOD_XP, p.substring(3), -1, 0, period, -1);
+        if (p.startsWith("count_")) return new Resolver(Kind.PERIOD_COUNT, p.substring(6), -1, 0, period, -1);
+        return of(Kind.UNKNOWN, null);
+    }
 
-        if (p.startsWith("income_")) {
-            String job = p.replace("income_", "");
-            var config = plugin.getJobConfigManager().getJob(job);
-            if (config == null) return "0.00";
-            int level = profile.getLevel(job);
-            double income = config.getIncome(level);
-            return fmt2(income);
+    private static Resolver of(Kind kind, String job) {
+        return new Resolver(kind, job, job == null ? -1 : JobIndex.find(job), 0, null, -1);
+    }
+
+    private PlayerCache playerCache(UUID uuid) {
+        PlayerCache cache = playerCaches.get(uuid);
+        if (cache != null) return cache;
+        if (playerCaches.size() >= MAX_PLAYER_CACHES) playerCaches.clear();
+        return playerCaches.computeIfAbsent(uuid, u -> new PlayerCache());
+    }
+
+    @Override
+    public String onRequest(OfflinePlayer player, @NotNull String params) {
+        if (player == null) return "";
+
+        Resolver r = resolver(params);
+        Kind kind = r.kind();
+
+        if (kind == Kind.LIMIT) {
+            if (player.isOnline()) return NumberFormats.integer(plugin.getJobManager().getPlayerJobLimit(player.getPlayer()));
+            return NumberFormats.integer(plugin.getConfig().getInt("jobs.limit", 2));
         }
+        if (kind == Kind.TOP_NAME_INVALID) return "---";
 
-        if (p.startsWith("xp_total_")) {
-            String job = p.replace("xp_total_", "");
-            var config = plugin.getJobConfigManager().getJob(job);
-            if (config == null) return "0.0";
-            int level = profile.getLevel(job);
-            double total = profile.getXp(job) + config.getCumulativeXpBeforeLevel(level);
-            return fmt1(total);
+        UUID uuid = player.getUniqueId();
+        long configStamp = jobConfigs.getGeneration();
+
+        if (kind.board) {
+            if (!kind.cached) return renderBoard(r, uuid);
+            PlayerCache cache = playerCache(uuid);
+            long stamp = leaderboards.getGeneration();
+            String value = cache.get(r, stamp, configStamp);
+            if (value != null) {
+                cacheHits.increment();
+                return value;
+            }
+            cacheMisses.increment();
+            value = renderBoard(r, uuid);
+            if (value != null) cache.put(r, stamp, configStamp, value);
+            return value;
         }
 
-        if (p.startsWith("xp_") && !p.contains("_req") && !p.contains("_percent") && !p.contains("_total")) {
-            String job = p.replace("xp_", "");
-            return fmt1(profile.getXp(job));
+        JobProfile profile = profiles.apply(uuid);
+        if (profile == null) {
+            return switch (kind) {
+                case JOBS_COUNT, TOTAL_LEVEL -> "0";
+                default -> "";
+            };
         }
+        if (!kind.cached) return renderProfile(r, profile);
 
-        if (p.startsWith("xp_req_")) {
-            String job = p.replace("xp_req_", "");
-            var config = plugin.getJobConfigManager().getJob(job);
-            if (config == null) return "0";
-            long req = config.getRequiredXp(profile.getLevel(job));
-            return (req == -1) ? "Max" : fmt0(req);
+        PlayerCache cache = playerCache(uuid);
+        cache.bind(profile);
+        long stamp = profile.getRevision();
+        String value = cache.get(r, stamp, configStamp);
+        if (value != null) {
+            cacheHits.increment();
+            return value;
+        }
+        cacheMisses.increment();
+        value = renderProfile(r, profile);
+        if (value != null) cache.put(r, stamp, configStamp, value);
+        return value;
+    }
+
+    private String renderBoard(Resolver r, UUID uuid) {
+        switch (r.kind()) {
+            case COUNT:
+                return NumberFormats.integer(leaderboards.getCount(r.job()));
+            case RANK: {
+                int rank = leaderboards.getRank(r.job(), uuid);
+                return (rank == 0) ? "---" : NumberFormats.integer(rank);
+            }
+            case TOP_NAME: {
+                String name = leaderboards.getNameAtRank(r.job(), r.rank());
+                return name != null ? name : "---";
+            }
+            case PERIOD_COUNT:
+                return NumberFormats.integer(periodBoards().getCount(r.period(), r.job()));
+            case PERIOD_RANK: {
+                int rank = periodBoards().getRank(r.period(), r.job(), uuid);
+                return (rank == 0) ? "---" : NumberFormats.integer(rank);
+            }
+            case PERIOD_XP:
+                return NumberFormats.fixed(periodBoards().getXp(r.period(), r.job(), uuid), 1);
+            case PERIOD_TOP_NAME: {
+                UUID topUUID = periodBoards().getPlayerAtRank(r.period(), r.job(), r.rank());
+                String name = topUUID == null ? null : plugin.getJobManager().getPlayerName(topUUID);
+                return name != null ? name : "---";
+            }
+            case PERIOD_TOP_XP: {
+                UUID topUUID = periodBoards().getPlayerAtRank(r.period(), r.job(), r.rank());
+                return topUUID == null ? "---" : NumberFormats.fixed(periodBoards().getXp(r.period(), r.job(), topUUID), 1);
+            }
+            default:
+                return null;
         }
+    }
+
+    private PeriodLeaderboards periodBoards() {
+        return plugin.getPeriodLeaderboards();
+    }
 
-        if (p.startsWith("xp_percent_")) {
-            String job = p.replace("xp_percent_", "");
-            var config = plugin.getJobConfigManager().getJob(job);
-            if (config == null) return "0.0";
-            long req = config.getRequiredXp(profile.getLevel(job));
-            if (req <= 0) return fmt1(100);
-            double pct = (profile.getXp(job) / req) * 100.0;
-            if (pct < 0) pct = 0;
-            if (pct > 100) pct = 100;
-            return fmt1(pct);
+    private String renderProfile(Resolver r, JobProfile profile) {
+        switch (r.kind()) {
+            case JOBS_COUNT: {
+                int count = 0;
+                for (JobConfigManager.JobConfig cfg : jobConfigs.getJobs()) {
+                    if (profile.isJoined(cfg.getIndex())) count++;
+                }
+                return NumberFormats.integer(count);
+            }
+            case JOBS_LIST: {
+                StringBuilder sb = new StringBuilder();
+                for (JobConfigManager.JobConfig cfg : jobConfigs.getJobs()) {
+                    if (!profile.isJoined(cfg.getIndex())) continue;
+                    if (sb.length() > 0) sb.append(", ");
+                    sb.append(capitalize(cfg.getId()));
+                }
+                return sb.toString();
+            }
+            case TOTAL_LEVEL: {
+                long total = 0;
+                for (JobConfigManager.JobConfig cfg : jobConfigs.getJobs()) {
+                    total += profile.getLevel(cfg.getIndex());
+                }
+                return NumberFormats.integer(total);
+            }
+            default:
+                break;
         }
 
-        if (p.startsWith("in_job_")) return String.valueOf(profile.isJoined(p.replace("in_job_", "")));
+        int idx = r.index();
 
-        return null;
+        switch (r.kind()) {
+            case BONUS:
+                return NumberFormats.fixed(profile.getTenureBonusPercent(idx), 1);
+            case LEVEL:
+                return NumberFormats.integer(profile.getLevel(idx));
+            case INCOME: {
+                var config = jobConfigs.getJob(idx);
+                if (config == null) return "0.00";
+                return NumberFormats.fixed(config.getIncome(profile.getLevel(idx)), 2);
+            }
+            case XP_TOTAL: {
+                var config = jobConfigs.getJob(idx);
+                if (config == null) return "0.0";
+                int level = profile.getLevel(idx);
+                return NumberFormats.fixed(profile.getXp(idx) + config.getCumulativeXpBeforeLevel(level), 1);
+            }
+            case XP:
+                return NumberFormats.fixed(profile.getXp(idx), 1);
+            case XP_REQ: {
+                var config = jobConfigs.getJob(idx);
+                if (config == null) return "0";
+                long req = config.getRequiredXp(profile.getLevel(idx));
+                return (req == -1) ? "Max" : NumberFormats.integer(req);
+            }
+            case XP_PERCENT: {
+                var config = jobConfigs.getJob(idx);
+                if (config == null) return "0.0";
+                long req = config.getRequiredXp(profile.getLevel(idx));
+                if (req <= 0) return "100.0";
+                double pct = (profile.getXp(idx) / req) * 100.0;
+                if (pct < 0) pct = 0;
+                if (pct > 100) pct = 100;
+                return NumberFormats.fixed(pct, 1);
+            }
+            case IN_JOB:
+                return String.valueOf(profile.isJoined(idx));
+            default:
+                return null;
+        }
     }
 }
@@ -0,0 +1,85 @@
+package me.perch.manager;
+
+import me.perch.data.JobProfile;
+import me.perch.metrics.Counter;
+import me.perch.util.PlacedBlockTracker;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.Ageable;
+
+import java.util.function.IntPredicate;
+
+final class BlockBreakFilter {
+
+    interface Sink {
+        void attempt(JobConfigManager.JobConfig cfg);
+
+        void reward(JobConfigManager.JobConfig cfg, double amount);
+    }
+
+    private final PlacedBlockTracker placedBlocks;
+    private final IntPredicate persistentJob;
+    private final boolean rateLimitEach;
+    private final Counter rateLimited;
+    private final Counter invalid;
+    private final Counter placed;
+    private final Counter notGrown;
+
+    BlockBreakFilter(PlacedBlockTracker placedBlocks, IntPredicate persistentJob, boolean rateLimitEach,
+                     Counter rateLimited, Counter invalid, Counter placed, Counter notGrown) {
+        this.placedBlocks = placedBlocks;
+        this.persistentJob = persistentJob;
+        this.rateLimitEach = rateLimitEach;
+        this.rateLimited = rateLimited;
+        this.invalid = invalid;
+        this.placed = placed;
+        this.notGrown = notGrown;
+    }
+
+    int evaluate(JobConfigManager.BlockRule rule, JobProfile profile, Block block, Material mat, Material tool,
+                 int extraBlocks, boolean persistedPlaced, long nowMs, Sink sink) {
+        int rewarded = 0;
+        for (int j = 0; j < rule.size(); j++) {
+            if (!profile.isJoined(rule.jobIndex(j))) continue;
+            JobConfigManager.JobConfig cfg = rule.job(j);
+
+            sink.attempt(cfg);
+
+            if (!cfg.isValidTool(tool) || !cfg.isValidBlock(mat)) {
+                invalid.increment();
+                continue;
+            }
+            if (rateLimitEach && !JobManager.tryRateLimit(profile, cfg, nowMs)) {
+                rateLimited.increment();
+                continue;
+            }
+
+            if (rule.checksPlacedBlocks(j)) {
+                if ((persistedPlaced && persistentJob.test(cfg.getIndex())) || placedBlocks.isRecent(block)) {
+                    placed.increment();
+                    continue;
+                }
+            }
+
+            if (rule.requiresFullyGrown(j)) {
+                if (!(block.getBlockData() instanceof Ageable crop) || crop.getAge() < crop.getMaximumAge()) {
+                    notGrown.increment();
+                    continue;
+                }
+            }
+
+            double decay = cfg.getStackDecayMultiplier();
+            double totalAmount = 1.0;
+            double currentBlockValue = 1.0;
+
+            for (int i = 0; i < extraBlocks; i++) {
+                currentBlockValue *= decay;
+                totalAmount += currentBlockValue;
+            }
+
+            sink.reward(cfg, totalAmount);
+            rewarded++;
+        }
+        return rewarded;
+    }
+}
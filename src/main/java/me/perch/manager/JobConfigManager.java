@@ -1,25 +1,48 @@
 package me.perch.manager;
 
 import me.perch.Jobs;
+import me.perch.data.JobIndex;
 import net.objecthunter.exp4j.Expression;
 import net.objecthunter.exp4j.ExpressionBuilder;
 import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.File;
 import java.util.*;
+import java.util.logging.Logger;
 
 public class JobConfigManager {
 
+    private static final Set<String> LEGACY_PLACED_CHECK_JOBS = Set.of("farmer", "lumberjack", "miner");
+    private static final List<String> LEGACY_FULLY_GROWN = List.of(
+            "WHEAT", "POTATOES", "CARROTS", "BEETROOTS", "NETHER_WART", "COCOA", "SWEET_BERRY_BUSH");
+    private static final List<String> LEGACY_STACKING_PLANTS = List.of("SUGAR_CANE", "BAMBOO", "CACTUS");
+    private static final Material[] MATERIALS = Material.values();
+
     private final Jobs plugin;
     private volatile Map<String, JobConfig> jobs = Map.of();
     private volatile Map<Material, List<String>> materialCache = Map.of();
+    private volatile JobConfig[] jobsByIndex = new JobConfig[0];
+    private volatile BlockRule[] blockRules = new BlockRule[0];
+    private volatile List<JobConfig> orderedJobs = List.of();
+    private volatile long generation = 0L;
 
     public JobConfigManager(Jobs plugin) {
         this.plugin = plugin;
         loadJobs();
     }
 
+    private JobConfigManager() {
+        this.plugin = null;
+    }
+
+    public static JobConfigManager of(Collection<JobConfig> configs) {
+        JobConfigManager manager = new JobConfigManager();
+        manager.install(configs, parseMaterials(LEGACY_STACKING_PLANTS));
+        return manager;
+    }
+
     public void reload() {
         loadJobs();
     }
@@ -28,14 +51,39 @@ public class JobConfigManager {
         return jobs.get(id);
     }
 
+    public JobConfig getJob(int index) {
+        JobConfig[] byIndex = jobsByIndex;
+        return (index >= 0 && index < byIndex.length) ? byIndex[index] : null;
+    }
+
+    public int getJobIndex(String id) {
+        JobConfig cfg = jobs.get(id);
+        return cfg == null ? -1 : cfg.getIndex();
+    }
+
     public Set<String> getAllJobIds() {
         return jobs.keySet();
     }
 
+    public List<JobConfig> getJobs() {
+        return orderedJobs;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
     public List<String> getJobsForBlock(Material mat) {
         return materialCache.getOrDefault(mat, List.of());
     }
 
+    public BlockRule getBlockRule(Material mat) {
+        BlockRule[] rules = blockRules;
+        int ordinal = mat.ordinal();
+        BlockRule rule = ordinal < rules.length ? rules[ordinal] : null;
+        return rule == null ? BlockRule.NONE : rule;
+    }
+
     public boolean isWhitelistedFor(String jobId, Material mat) {
         JobConfig cfg = jobs.get(jobId);
         if (cfg == null) return false;
@@ -59,79 +107,104 @@ public class JobConfigManager {
 
         File[] files = jobsFolder.listFiles((dir, name) -> name.endsWith(".yml"));
         if (files == null) return;
+        Arrays.sort(files);
 
-        Map<String, JobConfig> newJobs = new HashMap<>();
-        Map<Material, List<String>> newCache = new HashMap<>();
+        List<JobConfig> loaded = new ArrayList<>();
 
         for (File file : files) {
             String id = file.getName().replace(".yml", "").toLowerCase(Locale.ROOT);
             YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
 
-            Set<Material> whitelist = new HashSet<>();
-            for (String s : config.getStringList("whitelist")) {
-                try {
-                    whitelist.add(Material.valueOf(s.toUpperCase(Locale.ROOT)));
-                } catch (Exception ignored) {}
-            }
+            loaded.add(readJob(id, config, maxLevel, plugin.getLogger()));
+            plugin.getLogger().info("Loaded job: " + id);
+        }
 
-            for (Material mat : whitelist) {
-                newCache.computeIfAbsent(mat, k -> new ArrayList<>()).add(id);
-            }
+        List<String> stacking = plugin.getConfig().contains("stacking-plants")
+                ? plugin.getConfig().getStringList("stacking-plants")
+                : LEGACY_STACKING_PLANTS;
+        install(loaded, parseMaterials(stacking));
+    }
 
-            Set<Material> blacklist = new HashSet<>();
-            for (String s : config.getStringList("blacklist")) {
-                try { blacklist.add(Material.valueOf(s.toUpperCase(Locale.ROOT))); } catch (Exception ignored) {}
-            }
+    private static Set<Material> parseMaterials(List<String> names) {
+        Set<Material> out = new HashSet<>();
+        for (String s : names) {
+            try { out.add(Material.valueOf(s.toUpperCase(Locale.ROOT))); } catch (Exception ignored) {}
+        }
+        return out;
+    }
 
-            Set<Material> allowedTools = new HashSet<>();
-            for (String s : config.getStringList("tools")) {
-                try { allowedTools.add(Material.valueOf(s.toUpperCase(Locale.ROOT))); } catch (Exception ignored) {}
+    public static JobConfig readJob(String id, ConfigurationSection config, int maxLevel, Logger logger) {
+        Set<Material> whitelist = parseMaterials(config.getStringList("whitelist"));
+        Set<Material> blacklist = parseMaterials(config.getStringList("blacklist"));
+        Set<Material> allowedTools = parseMaterials(config.getStringList("tools"));
+
+        boolean legacyRules = LEGACY_PLACED_CHECK_JOBS.contains(id);
+        boolean placedBlockCheck = config.getBoolean("placed-block-check", legacyRules);
+        Set<Material> fullyGrown = parseMaterials(config.contains("require-fully-grown")
+                ? config.getStringList("require-fully-grown")
+                : (id.equals("farmer") ? LEGACY_FULLY_GROWN : List.of()));
+
+        String xpFormula = config.getString("xp-req-formula", "100 * (1.085 ^ (level - 1))");
+        long[] xpTable = new long[maxLevel + 2];
+        try {
+            for (int lvl = 1; lvl <= maxLevel; lvl++) {
+                Expression e = new ExpressionBuilder(xpFormula).variables("level").build().setVariable("level", lvl);
+                xpTable[lvl] = (long) e.evaluate();
             }
+        } catch (Exception ex) {
+            Arrays.fill(xpTable, Long.MAX_VALUE);
+            logger.warning("Invalid XP Formula for job " + id);
+        }
 
-            String xpFormula = config.getString("xp-req-formula", "100 * (1.085 ^ (level - 1))");
-            long[] xpTable = new long[maxLevel + 2];
-            try {
-                for (int lvl = 1; lvl <= maxLevel; lvl++) {
-                    Expression e = new ExpressionBuilder(xpFormula).variables("level").build().setVariable("level", lvl);
-                    xpTable[lvl] = (long) e.evaluate();
-                }
-            } catch (Exception ex) {
-                Arrays.fill(xpTable, Long.MAX_VALUE);
-                plugin.getLogger().warning("Invalid XP Formula for job " + id);
+        String incomeFormula = config.getString("income-formula", "0.05 + (level * 0.036)");
+        double[] incomeTable = new double[maxLevel + 2];
+        try {
+            for (int lvl = 1; lvl <= maxLevel; lvl++) {
+                Expression e = new ExpressionBuilder(incomeFormula).variables("level").build().setVariable("level", lvl);
+                double val = e.evaluate();
+                incomeTable[lvl] = Math.max(0.0, val);
             }
+        } catch (Exception ex) {
+            Arrays.fill(incomeTable, 0.0);
+            logger.warning("Invalid Income Formula for job " + id);
+        }
 
-            String incomeFormula = config.getString("income-formula", "0.05 + (level * 0.036)");
-            double[] incomeTable = new double[maxLevel + 2];
-            try {
-                for (int lvl = 1; lvl <= maxLevel; lvl++) {
-                    Expression e = new ExpressionBuilder(incomeFormula).variables("level").build().setVariable("level", lvl);
-                    double val = e.evaluate();
-                    incomeTable[lvl] = Math.max(0.0, val);
-                }
-            } catch (Exception ex) {
-                Arrays.fill(incomeTable, 0.0);
-                plugin.getLogger().warning("Invalid Income Formula for job " + id);
-            }
+        double stackDecay = config.getDouble("stack-decay-multiplier", 1.0);
+        double burstDecay = config.getDouble("burst-decay-multiplier", 1.0);
+        int maxActions = config.getInt("max-actions-per-second", 0);
+        boolean tokenBucket = "token-bucket".equalsIgnoreCase(config.getString("rate-limit.mode", "window"));
+        int burst = config.getInt("rate-limit.burst", maxActions);
+
+        return new JobConfig(
+                id,
+                JobIndex.of(id),
+                config.getString("display-name", id),
+                config.getDouble("xp-per-action", 1.0),
+                stackDecay,
+                burstDecay,
+                maxActions,
+                tokenBucket,
+                burst,
+                whitelist,
+                blacklist,
+                allowedTools,
+                placedBlockCheck,
+                fullyGrown,
+                xpTable,
+                incomeTable,
+                maxLevel
+        );
+    }
 
-            double stackDecay = config.getDouble("stack-decay-multiplier", 1.0);
-            int maxActions = config.getInt("max-actions-per-second", 0);
-
-            JobConfig jobConfig = new JobConfig(
-                    id,
-                    config.getString("display-name", id),
-                    config.getDouble("xp-per-action", 1.0),
-                    stackDecay,
-                    maxActions,
-                    whitelist,
-                    blacklist,
-                    allowedTools,
-                    xpTable,
-                    incomeTable,
-                    maxLevel
-            );
-
-            newJobs.put(id, jobConfig);
-            plugin.getLogger().info("Loaded job: " + id);
+    private void install(Collection<JobConfig> configs, Set<Material> stackingPlants) {
+        Map<String, JobConfig> newJobs = new HashMap<>();
+        Map<Material, List<String>> newCache = new HashMap<>();
+
+        for (JobConfig cfg : configs) {
+            newJobs.put(cfg.getId(), cfg);
+            for (Material mat : cfg.getWhitelist()) {
+                newCache.computeIfAbsent(mat, k -> new ArrayList<>()).add(cfg.getId());
+            }
         }
 
         Map<Material, List<String>> frozenCache = new HashMap<>();
@@ -139,36 +212,132 @@ public class JobConfigManager {
             frozenCache.put(e.getKey(), List.copyOf(e.getValue()));
         }
 
+        int slots = 0;
+        for (JobConfig cfg : newJobs.values()) slots = Math.max(slots, cfg.getIndex() + 1);
+        JobConfig[] newByIndex = new JobConfig[slots];
+        for (JobConfig cfg : newJobs.values()) newByIndex[cfg.getIndex()] = cfg;
+
+        BlockRule[] newRules = new BlockRule[MATERIALS.length];
+        for (Map.Entry<Material, List<String>> e : frozenCache.entrySet()) {
+            Material mat = e.getKey();
+            List<JobConfig> eligible = new ArrayList<>();
+            for (String id : e.getValue()) {
+                JobConfig cfg = newJobs.get(id);
+                if (cfg.isValidBlock(mat)) eligible.add(cfg);
+            }
+            if (eligible.isEmpty()) continue;
+            eligible.sort(Comparator.comparingInt(JobConfig::getIndex));
+            newRules[mat.ordinal()] = new BlockRule(mat, eligible, stackingPlants.contains(mat));
+        }
+
         jobs = Map.copyOf(newJobs);
         materialCache = Map.copyOf(frozenCache);
+        jobsByIndex = newByIndex;
+        blockRules = newRules;
+        List<JobConfig> ordered = new ArrayList<>(newJobs.values());
+        ordered.sort(Comparator.comparingInt(JobConfig::getIndex));
+        orderedJobs = List.copyOf(ordered);
+        generation++;
+    }
+
+    private static long[] materialMask(Set<Material> materials) {
+        long[] mask = new long[(MATERIALS.length + 63) >>> 6];
+        for (Material mat : materials) mask[mat.ordinal() >>> 6] |= 1L << mat.ordinal();
+        return mask;
+    }
+
+    private static boolean test(long[] mask, Material mat) {
+        int ordinal = mat.ordinal();
+        return (mask[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    public static final class BlockRule {
+        static final BlockRule NONE = new BlockRule(null, List.of(), false);
+
+        private final JobConfig[] jobs;
+        private final int[] jobIndices;
+        private final boolean[] requireFullyGrown;
+        private final boolean[] placedBlockCheck;
+        private final boolean anyPlacedBlockCheck;
+        private final boolean stacking;
+
+        BlockRule(Material mat, List<JobConfig> eligible, boolean stacking) {
+            int n = eligible.size();
+            this.jobs = eligible.toArray(new JobConfig[0]);
+            this.jobIndices = new int[n];
+            this.requireFullyGrown = new boolean[n];
+            this.placedBlockCheck = new boolean[n];
+            boolean any = false;
+            for (int j = 0; j < n; j++) {
+                JobConfig cfg = jobs[j];
+                jobIndices[j] = cfg.getIndex();
+                requireFullyGrown[j] = cfg.requiresFullyGrown(mat);
+                placedBlockCheck[j] = cfg.isPlacedBlockCheck();
+                any |= placedBlockCheck[j];
+            }
+            this.anyPlacedBlockCheck = any;
+            this.stacking = stacking;
+        }
+
+        public boolean isEmpty() { return jobs.length == 0; }
+        public int size() { return jobs.length; }
+        public JobConfig job(int j) { return jobs[j]; }
+        public int jobIndex(int j) { return jobIndices[j]; }
+        public boolean requiresFullyGrown(int j) { return requireFullyGrown[j]; }
+        public boolean checksPlacedBlocks(int j) { return placedBlockCheck[j]; }
+        public boolean checksPlacedBlocks() { return anyPlacedBlockCheck; }
+        public boolean isStacking() { return stacking; }
     }
 
     public static class JobConfig {
         private final String id;
+        private final int index;
         private final String displayName;
         private final double xpPerAction;
         private final double stackDecayMultiplier;
+        private final double burstDecayMultiplier;
         private final int maxActionsPerSecond;
+        private final boolean tokenBucket;
+        private final int burst;
         private final Set<Material> whitelist;
         private final Set<Material> blacklist;
         private final Set<Material> allowedTools;
+        private final long[] validBlockMask;
+        private final long[] toolMask;
+        private final long[] fullyGrownMask;
+        private final boolean placedBlockCheck;
         private final long[] xpTable;
         private final long[] xpPrefix;
         private final double[] incomeTable;
         private final int maxLevel;
 
-        public JobConfig(String id, String displayName, double xpPerAction,
-                         double stackDecayMultiplier, int maxActionsPerSecond,
+        public JobConfig(String id, int index, String displayName, double xpPerAction,
+                         double stackDecayMultiplier, double burstDecayMultiplier, int maxActionsPerSecond, boolean tokenBucket, int burst,
                          Set<Material> whitelist, Set<Material> blacklist, Set<Material> allowedTools,
-                         long[] xpTable, double[] incomeTable, int maxLevel) {
+                         boolean placedBlockCheck, Set<Material> requireFullyGrown, long[] xpTable, double[] incomeTable, int maxLevel) {
             this.id = id;
+            this.index = index;
             this.displayName = displayName;
             this.xpPerAction = xpPerAction;
             this.stackDecayMultiplier = stackDecayMultiplier;
+            this.burstDecayMultiplier = burstDecayMultiplier;
             this.maxActionsPerSecond = maxActionsPerSecond;
+            this.tokenBucket = tokenBucket;
+            this.burst = Math.max(1, burst);
             this.whitelist = Set.copyOf(whitelist);
             this.blacklist = Set.copyOf(blacklist);
             this.allowedTools = Set.copyOf(allowedTools);
+            this.placedBlockCheck = placedBlockCheck;
+            this.toolMask = allowedTools.isEmpty() ? null : materialMask(allowedTools);
+            this.fullyGrownMask = materialMask(requireFullyGrown);
+
+            Set<Material> valid = new HashSet<>();
+            for (Material mat : MATERIALS) {
+                if (!blacklist.isEmpty() && blacklist.contains(mat)) continue;
+                if (!whitelist.isEmpty() && !whitelist.contains(mat)) continue;
+                valid.add(mat);
+            }
+            this.validBlockMask = materialMask(valid);
             this.xpTable = xpTable;
             this.incomeTable = incomeTable;
             this.maxLevel = maxLevel;
@@ -185,14 +354,15 @@ public class JobConfigManager {
         }
 
         public boolean isValidBlock(Material mat) {
-            if (!blacklist.isEmpty() && blacklist.contains(mat)) return false;
-            if (!whitelist.isEmpty() && !whitelist.contains(mat)) return false;
-            return true;
+            return test(validBlockMask, mat);
         }
 
         public boolean isValidTool(Material tool) {
-            if (allowedTools.isEmpty()) return true;
-            return allowedTools.contains(tool);
+            return toolMask == null || test(toolMask, tool);
+        }
+
+        public boolean requiresFullyGrown(Material mat) {
+            return test(fullyGrownMask, mat);
         }
 
         public long getRequiredXp(int level) {
@@ -214,13 +384,18 @@ public class JobConfigManager {
         }
 
         public String getId() { return id; }
+        public int getIndex() { return index; }
         public String getDisplayName() { return displayName; }
         public double getXpPerAction() { return xpPerAction; }
         public double getStackDecayMultiplier() { return stackDecayMultiplier; }
+        public double getBurstDecayMultiplier() { return burstDecayMultiplier; }
         public int getMaxActionsPerSecond() { return maxActionsPerSecond; }
+        public boolean isTokenBucket() { return tokenBucket; }
+        public int getBurst() { return burst; }
         public Set<Material> getWhitelist() { return whitelist; }
         public Set<Material> getBlacklist() { return blacklist; }
         public Set<Material> getAllowedTools() { return allowedTools; }
+        public boolean isPlacedBlockCheck() { return placedBlockCheck; }
         public int getMaxLevel() { return maxLevel; }
     }
 }
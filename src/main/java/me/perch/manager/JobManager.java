@@ -1,8 +1,20 @@
 package me.perch.manager;
 
 import me.perch.Jobs;
+import me.perch.data.JobIndex;
 import me.perch.data.JobProfile;
+import me.perch.data.ProfileJournal;
+import me.perch.metrics.Counter;
+import me.perch.metrics.MetricsRegistry;
+import me.perch.sync.ProfileSync;
+import me.perch.util.ActionQueue;
+import me.perch.util.BurstAccumulator;
+import me.perch.util.ChunkPlacedStore;
+import me.perch.util.LatencyHistogram;
+import me.perch.util.MessageTemplate;
+import me.perch.util.NumberFormats;
 import me.perch.util.PlacedBlockTracker;
+import me.perch.util.RateLimiter;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -16,84 +28,396 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerFishEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.EquipmentSlot;
-import org.bukkit.inventory.ItemStack;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
 
-public class JobManager implements Listener {
+public class JobManager implements Listener, ProfileSync.Host {
 
     private final Jobs plugin;
     private final Map<UUID, JobProfile> activeProfiles = new ConcurrentHashMap<>();
-    private final Map<UUID, Map<String, StrictRateLimiter>> rateLimiters = new ConcurrentHashMap<>();
+    private final Map<UUID, Preloaded> preloaded = new ConcurrentHashMap<>();
+    private final long preloadExpireMs;
     private final PlacedBlockTracker placedBlockTracker = new PlacedBlockTracker(3000L);
     private final PlacedBlockTracker builderCooldownTracker = new PlacedBlockTracker(3000L);
+    private final ActionQueue actionQueue;
+    private final ActionQueue.Batch actionBatch;
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final ProfileSaver profileSaver;
+    private final ProfileLoader profileLoader;
+    private final OfflineProfileCache offlineCache;
+    private final ChunkPlacedStore persistentPlaced;
+    private final boolean[] persistentPlacedJobs;
+    private final ProfileJournal journal;
+    private final ProfileSync sync;
+    private final boolean verifyCache;
+    private final BurstAccumulator bursts;
+    private final long burstWindowTicks;
+    private final MetricsRegistry metrics;
+    private final LatencyHistogram preLoginTime;
+    private final LatencyHistogram joinTime;
+    private final LatencyHistogram quitTime;
+    private final LatencyHistogram blockPlaceTime;
+    private final LatencyHistogram berryHarvestTime;
+    private final LatencyHistogram blockBreakTime;
+    private final LatencyHistogram fishTime;
+    private final LatencyHistogram actionBatchTime;
+    private final Counter actionsAccepted;
+    private final Counter rejectedRateLimited;
+    private final Counter rejectedInvalid;
+    private final Counter rejectedPlaced;
+    private final Counter rejectedCooldown;
+    private final Counter rejectedNotGrown;
+    private final BlockBreakFilter breakFilter;
 
     public JobManager(Jobs plugin) {
         this.plugin = plugin;
+        this.metrics = plugin.getMetrics();
+        String eventHelp = "Time spent in PerchJobs event handlers";
+        this.preLoginTime = metrics.timer("perchjobs_event_seconds", eventHelp, "event", "pre_login");
+        this.joinTime = metrics.timer("perchjobs_event_seconds", eventHelp, "event", "join");
+        this.quitTime = metrics.timer("perchjobs_event_seconds", eventHelp, "event", "quit");
+        this.blockPlaceTime = metrics.timer("perchjobs_event_seconds", eventHelp, "event", "block_place");
+        this.berryHarvestTime = metrics.timer("perchjobs_event_seconds", eventHelp, "event", "berry_harvest");
+        this.blockBreakTime = metrics.timer("perchjobs_event_seconds", eventHelp, "event", "block_break");
+        this.fishTime = metrics.timer("perchjobs_event_seconds", eventHelp, "event", "fish");
+        this.actionBatchTime = metrics.timer("perchjobs_action_batch_seconds", "Time spent applying one drained batch of queued actions");
+        this.actionsAccepted = metrics.counter("perchjobs_actions_accepted_total", "Actions that passed all checks and were submitted for reward");
+        String rejectHelp = "Actions rejected before reward, by reason";
+        this.rejectedRateLimited = metrics.counter("perchjobs_actions_rejected_total", rejectHelp, "reason", "rate_limited");
+        this.rejectedInvalid = metrics.counter("perchjobs_actions_rejected_total", rejectHelp, "reason", "invalid_block_or_tool");
+        this.rejectedPlaced = metrics.counter("perchjobs_actions_rejected_total", rejectHelp, "reason", "placed_block");
+        this.rejectedCooldown = metrics.counter("perchjobs_actions_rejected_total", rejectHelp, "reason", "builder_cooldown");
+        this.rejectedNotGrown = metrics.counter("perchjobs_actions_rejected_total", rejectHelp, "reason", "not_grown");
+        this.actionQueue = new ActionQueue(plugin.getConfig().getInt("action-queue.capacity", 16384));
+        this.actionBatch = new ActionQueue.Batch(plugin.getConfig().getInt("action-queue.max-batch", 2048));
+        this.profileSaver = new ProfileSaver(plugin);
+        this.profileLoader = new ProfileLoader(plugin, profileSaver);
+        this.offlineCache = new OfflineProfileCache(plugin, profileLoader::load, activeProfiles::containsKey);
+        this.bursts = plugin.getConfig().getBoolean("burst.enabled", true) ? new BurstAccumulator() : null;
+        this.burstWindowTicks = Math.max(1L, plugin.getConfig().getLong("burst.window-ticks", 1L));
+        this.preloadExpireMs = Math.max(1L, plugin.getConfig().getLong("load.preload-expire-seconds", 60L)) * 1000L;
+        boolean persistent = plugin.getConfig().getBoolean("placed-blocks.persistent", false);
+        this.persistentPlaced = persistent ? new ChunkPlacedStore(plugin) : null;
+        this.persistentPlacedJobs = persistentJobFlags(plugin.getConfig().getStringList("placed-blocks.persistent-jobs"));
+        this.breakFilter = new BlockBreakFilter(placedBlockTracker, this::isPersistentJob, bursts == null,
+                rejectedRateLimited, rejectedInvalid, rejectedPlaced, rejectedNotGrown);
+        this.journal = openJournal();
+        this.sync = ProfileSync.create(plugin, this);
+        if (sync != null) profileSaver.setSaveListener(sync::onSaved);
+        this.verifyCache = sync == null && plugin.getProfileStore().isShared();
         Bukkit.getPluginManager().registerEvents(this, plugin);
+        Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::drainActions, 1L, 1L);
         Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> {
             placedBlockTracker.cleanup();
             builderCooldownTracker.cleanup();
+            offlineCache.evictExpired();
+            expirePreloaded();
         }, 100L, 100L);
-        for (Player p : Bukkit.getOnlinePlayers()) loadProfile(p.getUniqueId());
+        if (journal != null) {
+            long syncTicks = Math.max(1L, plugin.getConfig().getLong("journal.sync-ticks", 5L));
+            Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, journal::sync, syncTicks, syncTicks);
+        }
+        loadOnlinePlayers();
+    }
+
+    private ProfileJournal openJournal() {
+        if (!plugin.getConfig().getBoolean("journal.enabled", true)) return null;
+        int segmentBytes = (int) Math.min(Integer.MAX_VALUE, plugin.getConfig().getLong("journal.segment-size-mb", 16L) << 20);
+        ProfileJournal j = new ProfileJournal(new File(plugin.getDataFolder(), "journal"), segmentBytes, plugin.getLogger());
+        try {
+            long lastSeq = replayJournal(j.readAll());
+            j.open(lastSeq + 1);
+            long segment = j.getCurrentSegment();
+            profileSaver.checkpoint().thenRun(() -> j.truncateBefore(segment));
+            return j;
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            plugin.getLogger().warning("Crash journal disabled; progress since the last save will not survive a crash.");
+            return null;
+        }
+    }
+
+    private long replayJournal(List<ProfileJournal.Entry> entries) throws SQLException {
+        long lastSeq = 0L;
+        Map<UUID, List<ProfileJournal.Entry>> byPlayer = new HashMap<>();
+        for (ProfileJournal.Entry entry : entries) {
+            lastSeq = Math.max(lastSeq, entry.seq());
+            byPlayer.computeIfAbsent(entry.uuid(), u -> new ArrayList<>()).add(entry);
+        }
+
+        lastSeq = Math.max(lastSeq, plugin.getProfileStore().getMaxJournalSeq());
+        if (byPlayer.isEmpty()) return lastSeq;
+
+        int applied = 0;
+        Map<UUID, JobProfile> stored = plugin.getProfileStore().loadProfiles(byPlayer.keySet());
+        for (Map.Entry<UUID, List<ProfileJournal.Entry>> e : byPlayer.entrySet()) {
+            UUID uuid = e.getKey();
+            JobProfile profile = stored.get(uuid);
+            if (profile == null) profile = new JobProfile();
+
+            long storedSeq = profile.getJournalSeq();
+            boolean changed = false;
+            for (ProfileJournal.Entry entry : e.getValue()) {
+                if (entry.seq() <= storedSeq) continue;
+                int jobIndex = JobIndex.of(entry.job());
+                profile.setLevel(jobIndex, profile.getLevel(jobIndex) + entry.levelDelta());
+                profile.setXp(jobIndex, profile.getXp(jobIndex) + entry.xpDelta());
+                profile.setJournalSeq(entry.seq());
+                applied++;
+                changed = true;
+            }
+            if (!changed) continue;
+
+            for (int jobIndex = 0; jobIndex < JobIndex.size(); jobIndex++) {
+                if (profile.isJoined(jobIndex)) {
+                    plugin.getLeaderboardManager().update(jobIndex, uuid, profile.getLevel(jobIndex), profile.getXp(jobIndex));
+                }
+            }
+            profileSaver.enqueue(uuid, profile);
+        }
+
+        profileSaver.flush();
+        if (applied > 0) {
+            plugin.getLogger().info("Replayed " + applied + " journaled action(s) for " + byPlayer.size() + " player(s).");
+        }
+        return lastSeq;
     }
 
     public void loadProfile(UUID uuid) {
-        CompletableFuture.runAsync(() -> {
-            try (Connection conn = plugin.getDataSource().getConnection();
-                 PreparedStatement ps = conn.prepareStatement("SELECT data FROM job_data WHERE uuid=?")) {
-                ps.setString(1, uuid.toString());
-                ResultSet rs = ps.executeQuery();
-                JobProfile profile = rs.next() ? JobProfile.deserialize(rs.getString("data")) : new JobProfile();
-                activeProfiles.put(uuid, profile);
-            } catch (Exception ex) {
+        profileLoader.load(uuid).whenComplete((profile, ex) -> {
+            if (ex != null) {
+                ex.printStackTrace();
+                return;
+            }
+            if (Bukkit.getPlayer(uuid) != null) install(uuid, profile);
+        });
+    }
+
+    private void install(UUID uuid, JobProfile profile) {
+        if (activeProfiles.putIfAbsent(uuid, profile) == null && sync != null) sync.announceOwner(uuid, profile);
+    }
+
+    public void loadOnlinePlayers() {
+        List<UUID> missing = new ArrayList<>();
+        for (Player p : Bukkit.getOnlinePlayers()) {
+            if (!activeProfiles.containsKey(p.getUniqueId())) missing.add(p.getUniqueId());
+        }
+        if (missing.isEmpty()) return;
+        profileLoader.loadAll(missing).whenComplete((profiles, ex) -> {
+            if (ex != null) {
                 ex.printStackTrace();
+                return;
             }
+            profiles.forEach((uuid, profile) -> {
+                if (Bukkit.getPlayer(uuid) != null) install(uuid, profile);
+            });
         });
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent e) {
+        long start = metrics.startTimer();
+        handlePreLogin(e);
+        metrics.stopTimer(preLoginTime, start);
+    }
+
+    private void handlePreLogin(AsyncPlayerPreLoginEvent e) {
+        if (e.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        UUID uuid = e.getUniqueId();
+        JobProfile cached = offlineCache.remove(uuid);
+        if (cached != null && verifyCache && !isCurrent(uuid, cached)) {
+            profileSaver.discard(uuid);
+            cached = null;
+        }
+        if (cached != null) {
+            preloaded.put(uuid, new Preloaded(cached));
+            return;
+        }
+        if (sync != null) {
+            JobProfile handedOff = sync.acquire(uuid);
+            if (handedOff != null) {
+                preloaded.put(uuid, new Preloaded(handedOff));
+                return;
+            }
+        }
+        long timeoutMs = plugin.getConfig().getLong("load.prelogin-timeout-ms", 5000L);
+        try {
+            JobProfile loaded = profileLoader.load(uuid).get(timeoutMs, TimeUnit.MILLISECONDS);
+            preloaded.put(uuid, new Preloaded(loaded));
+        } catch (TimeoutException ex) {
+            plugin.getLogger().warning("Timed out preloading the job profile of " + e.getName() + "; it will load after join.");
+        } catch (ExecutionException ex) {
+            ex.printStackTrace();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean isCurrent(UUID uuid, JobProfile cached) {
+        if (journal == null) return false;
+        try {
+            return plugin.getProfileStore().getJournalSeq(uuid) <= cached.getJournalSeq();
+        } catch (SQLException ex) {
+            plugin.getLogger().warning("Could not check the stored journal_seq of " + uuid + ": " + ex.getMessage());
+            return false;
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(PlayerLoginEvent e) {
+        if (e.getResult() == PlayerLoginEvent.Result.ALLOWED) return;
+        UUID uuid = e.getPlayer().getUniqueId();
+        Preloaded entry = preloaded.remove(uuid);
+        if (entry != null) offlineCache.put(uuid, entry.profile());
+    }
+
+    private void expirePreloaded() {
+        long cutoff = System.currentTimeMillis() - preloadExpireMs;
+        for (Map.Entry<UUID, Preloaded> e : preloaded.entrySet()) {
+            Preloaded entry = e.getValue();
+            if (entry.at() < cutoff && preloaded.remove(e.getKey(), entry)) offlineCache.put(e.getKey(), entry.profile());
+        }
+    }
+
     @EventHandler
     public void onJoin(PlayerJoinEvent e) {
-        loadProfile(e.getPlayer().getUniqueId());
+        long start = metrics.startTimer();
+        handleJoin(e);
+        metrics.stopTimer(joinTime, start);
+    }
+
+    private void handleJoin(PlayerJoinEvent e) {
+        UUID uuid = e.getPlayer().getUniqueId();
+        plugin.getLeaderboardManager().onNameSeen(uuid, e.getPlayer().getName());
+        Preloaded entry = preloaded.remove(uuid);
+        JobProfile cached = offlineCache.remove(uuid);
+        if (verifyCache && entry == null) cached = null;
+        JobProfile unsaved = profileSaver.peek(uuid);
+        JobProfile profile = unsaved != null ? unsaved : newer(entry, cached);
+        if (profile != null) {
+            activeProfiles.put(uuid, profile);
+            if (sync != null) sync.announceOwner(uuid, profile);
+        } else {
+            loadProfile(uuid);
+        }
+    }
+
+    private static JobProfile newer(Preloaded entry, JobProfile cached) {
+        if (entry == null) return cached;
+        JobProfile preloaded = entry.profile();
+        if (cached == null || cached == preloaded || preloaded.getRevision() != entry.revision()) return preloaded;
+        return cached.getRevision() > 0L ? cached : preloaded;
     }
 
     @EventHandler
     public void onQuit(PlayerQuitEvent e) {
+        long start = metrics.startTimer();
+        handleQuit(e);
+        metrics.stopTimer(quitTime, start);
+    }
+
+    private void handleQuit(PlayerQuitEvent e) {
         UUID uuid = e.getPlayer().getUniqueId();
         JobProfile profile = activeProfiles.remove(uuid);
-        if (profile != null && profile.isDirty()) saveProfileAsync(uuid, profile);
-        rateLimiters.remove(uuid);
+        if (profile == null) {
+            if (sync != null) sync.onQuit(uuid, null, false);
+            return;
+        }
+        offlineCache.put(uuid, profile);
+        offlineCache.rememberName(uuid, e.getPlayer().getName());
+        boolean dirty = profile.isDirty();
+        if (sync != null) sync.onQuit(uuid, profile, dirty);
+        if (dirty) {
+            profileSaver.enqueue(uuid, profile);
+            profileSaver.requestFlush();
+        }
     }
 
     public void saveAllDirty() {
+        long boundary = -1L;
+        if (journal != null) {
+            try {
+                boundary = journal.rotate();
+            } catch (IOException ex) {
+                plugin.getLogger().warning("Could not rotate the crash journal: " + ex.getMessage());
+            }
+        }
         activeProfiles.forEach((uuid, profile) -> {
-            if (profile.isDirty()) saveProfileAsync(uuid, profile);
+            if (profile.isDirty()) profileSaver.enqueue(uuid, profile);
         });
+        if (boundary >= 0L) {
+            long segment = boundary;
+            profileSaver.checkpoint().thenRun(() -> journal.truncateBefore(segment));
+        }
+        profileSaver.flush();
     }
 
     public void shutdown() {
+        if (bursts != null) flushBursts();
+        while (!draining.compareAndSet(false, true)) Thread.onSpinWait();
+        try {
+            drainQueued();
+        } finally {
+            draining.set(false);
+        }
+        if (persistentPlaced != null) persistentPlaced.saveAll();
         activeProfiles.forEach((uuid, profile) -> {
-            if (profile.isDirty()) {
-                try {
-                    saveProfileSync(uuid, profile);
-                } catch (Exception e) {
-                    if (!e.getMessage().contains("SQLITE_READONLY_DBMOVED")) e.printStackTrace();
-                }
-            }
+            if (profile.isDirty()) profileSaver.enqueue(uuid, profile);
         });
+        profileSaver.shutdown(plugin.getConfig().getLong("save.shutdown-timeout-ms", 10000L));
+        if (journal != null) {
+            journal.close();
+            if (profileSaver.isIdle()) journal.truncateBefore(Long.MAX_VALUE);
+        }
+        if (sync != null) {
+            if (profileSaver.isIdle()) sync.releaseAll(activeProfiles);
+            sync.close();
+        }
+    }
+
+    private static boolean[] persistentJobFlags(List<String> jobIds) {
+        int[] indices = new int[jobIds.size()];
+        int max = -1;
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = JobIndex.of(jobIds.get(i).toLowerCase(Locale.ROOT));
+            max = Math.max(max, indices[i]);
+        }
+        boolean[] flags = new boolean[max + 1];
+        for (int index : indices) flags[index] = true;
+        return flags;
+    }
+
+    private boolean isPersistentlyTracked(JobConfigManager.BlockRule rule) {
+        for (int j = 0; j < rule.size(); j++) {
+            if (isPersistentJob(rule.jobIndex(j))) return true;
+        }
+        return false;
+    }
+
+    private boolean isPersistentJob(int jobIndex) {
+        return jobIndex < persistentPlacedJobs.length && persistentPlacedJobs[jobIndex];
     }
 
     public int getPlayerJobLimit(Player p) {
@@ -103,94 +427,117 @@ public class JobManager implements Listener {
         return plugin.getConfig().getInt("jobs.limit", 2);
     }
 
-    private void saveProfileAsync(UUID uuid, JobProfile profile) {
-        CompletableFuture.runAsync(() -> saveProfileSync(uuid, profile));
+    public JobProfile getProfile(UUID uuid) {
+        JobProfile profile = liveProfile(uuid);
+        return profile != null ? profile : offlineCache.getOrRefresh(uuid);
     }
 
-    private void saveProfileSync(UUID uuid, JobProfile profile) {
-        final long rev;
-        final String json;
-        final Map<String, Integer> levelsSnapshot;
-        final Map<String, Double> xpSnapshot;
+    public CompletableFuture<JobProfile> getProfileAsync(UUID uuid) {
+        JobProfile profile = liveProfile(uuid);
+        if (profile == null) profile = offlineCache.get(uuid);
+        if (profile != null) return CompletableFuture.completedFuture(profile);
+        return profileLoader.load(uuid).thenApply(loaded -> {
+            JobProfile current = liveProfile(uuid);
+            return current != null ? current : offlineCache.putIfAbsent(uuid, loaded);
+        });
+    }
 
-        synchronized (profile) {
-            rev = profile.getRevision();
-            json = profile.serialize();
-            levelsSnapshot = profile.snapshotLevels();
-            xpSnapshot = profile.snapshotXp();
-        }
+    private JobProfile liveProfile(UUID uuid) {
+        JobProfile profile = activeProfiles.get(uuid);
+        if (profile != null) return profile;
+        Preloaded entry = preloaded.get(uuid);
+        return entry != null ? entry.profile() : null;
+    }
 
-        try (Connection conn = plugin.getDataSource().getConnection()) {
-            conn.setAutoCommit(false);
+    public void saveOffline(UUID uuid, JobProfile profile) {
+        if (activeProfiles.get(uuid) == profile) return;
+        profileSaver.enqueue(uuid, profile);
+        profileSaver.requestFlush();
+    }
 
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO job_data(uuid, data) VALUES(?, ?) " +
-                            "ON CONFLICT(uuid) DO UPDATE SET data=excluded.data")) {
-                ps.setString(1, uuid.toString());
-                ps.setString(2, json);
-                ps.executeUpdate();
-            }
+    @Override
+    public JobProfile detach(UUID uuid) {
+        JobProfile active = activeProfiles.remove(uuid);
+        Preloaded entry = preloaded.remove(uuid);
+        JobProfile cached = offlineCache.remove(uuid);
+        JobProfile unsaved = profileSaver.discard(uuid);
+        if (active != null) return active;
+        if (entry != null) return entry.profile();
+        return cached != null ? cached : unsaved;
+    }
 
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO job_levels (uuid, job_id, level, xp) VALUES (?, ?, ?, ?) " +
-                            "ON CONFLICT(uuid, job_id) DO UPDATE SET level=excluded.level, xp=excluded.xp")) {
-                for (Map.Entry<String, Integer> entry : levelsSnapshot.entrySet()) {
-                    String job = entry.getKey();
-                    ps.setString(1, uuid.toString());
-                    ps.setString(2, job);
-                    ps.setInt(3, entry.getValue());
-                    ps.setDouble(4, xpSnapshot.getOrDefault(job, 0.0));
-                    ps.addBatch();
-                }
-                ps.executeBatch();
-            }
+    @Override
+    public void evictOffline(UUID uuid) {
+        offlineCache.remove(uuid);
+    }
 
-            conn.commit();
-            conn.setAutoCommit(true);
+    @Override
+    public void observeJournalSeq(long seq) {
+        if (journal != null) journal.observe(seq);
+    }
 
-            synchronized (profile) {
-                if (profile.getRevision() == rev) profile.setClean();
-            }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+    public ProfileSync getSync() {
+        return sync;
     }
 
-    public JobProfile getProfile(UUID uuid) {
-        return activeProfiles.get(uuid);
+    public String getPlayerName(UUID uuid) {
+        return offlineCache.getName(uuid);
+    }
+
+    public OfflineProfileCache getOfflineCache() {
+        return offlineCache;
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockPlace(BlockPlaceEvent e) {
+        long start = metrics.startTimer();
+        handleBlockPlace(e);
+        metrics.stopTimer(blockPlaceTime, start);
+    }
+
+    private void handleBlockPlace(BlockPlaceEvent e) {
         UUID uuid = e.getPlayer().getUniqueId();
         Material mat = e.getBlock().getType();
 
-        JobProfile profile = activeProfiles.get(uuid);
-        if (profile == null) return;
-
         var jcm = plugin.getJobConfigManager();
-        if (jcm.isWhitelistedFor("farmer", mat) || jcm.isWhitelistedFor("lumberjack", mat) || jcm.isWhitelistedFor("miner", mat)) {
+        JobConfigManager.BlockRule rule = jcm.getBlockRule(mat);
+        if (rule.checksPlacedBlocks()) {
             placedBlockTracker.record(e.getBlock());
         }
+        if (persistentPlaced != null && isPersistentlyTracked(rule)) {
+            persistentPlaced.mark(e.getBlock());
+        }
+
+        JobProfile profile = activeProfiles.get(uuid);
+        if (profile == null) return;
 
         var cfg = jcm.getJob("builder");
         if (cfg == null) return;
-        if (!profile.isJoined("builder")) return;
+        if (!profile.isJoined(cfg.getIndex())) return;
 
         plugin.getDebugManager().recordAttempt(uuid, "builder", 1.0);
 
         if (!cfg.isValidBlock(mat)) return;
-        if (!tryRateLimit(uuid, "builder", cfg.getMaxActionsPerSecond())) return;
+        if (!rateLimit(profile, cfg, System.currentTimeMillis())) return;
 
         boolean blocked = builderCooldownTracker.isRecent(e.getBlock());
         builderCooldownTracker.record(e.getBlock());
-        if (blocked) return;
+        if (blocked) {
+            rejectedCooldown.increment();
+            return;
+        }
 
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> processAction(uuid, "builder", mat, 1.0));
+        submitAction(uuid, cfg, mat, 1.0);
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBerryHarvest(PlayerInteractEvent e) {
+        long start = metrics.startTimer();
+        handleBerryHarvest(e);
+        metrics.stopTimer(berryHarvestTime, start);
+    }
+
+    private void handleBerryHarvest(PlayerInteractEvent e) {
         if (e.getHand() != EquipmentSlot.HAND) return;
         if (!e.getAction().isRightClick()) return;
 
@@ -205,19 +552,23 @@ public class JobManager implements Listener {
         UUID uuid = e.getPlayer().getUniqueId();
         JobProfile profile = activeProfiles.get(uuid);
         if (profile == null) return;
-        if (!profile.isJoined("farmer")) return;
 
         var cfg = plugin.getJobConfigManager().getJob("farmer");
         if (cfg == null) return;
+        if (!profile.isJoined(cfg.getIndex())) return;
 
         plugin.getDebugManager().recordAttempt(uuid, "farmer", 1.0);
 
         Material mat = Material.SWEET_BERRY_BUSH;
         if (!cfg.isValidBlock(mat)) return;
-        if (!tryRateLimit(uuid, "farmer", cfg.getMaxActionsPerSecond())) return;
+        if (!rateLimit(profile, cfg, System.currentTimeMillis())) return;
 
         if (plugin.getJobConfigManager().isWhitelistedFor("farmer", mat)) {
-            if (placedBlockTracker.isRecent(clicked)) return;
+            if (placedBlockTracker.isRecent(clicked)
+                    || (persistentPlaced != null && isPersistentJob(cfg.getIndex()) && persistentPlaced.isPlaced(clicked))) {
+                rejectedPlaced.increment();
+                return;
+            }
         }
 
         Location loc = clicked.getLocation();
@@ -228,95 +579,85 @@ public class JobManager implements Listener {
             if (!(now.getBlockData() instanceof Ageable after)) return;
             if (after.getAge() >= beforeAge) return;
 
-            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> processAction(uuid, "farmer", Material.SWEET_BERRY_BUSH, 1.0));
+            submitAction(uuid, cfg, Material.SWEET_BERRY_BUSH, 1.0);
         });
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockBreak(BlockBreakEvent e) {
+        long start = metrics.startTimer();
+        handleBlockBreak(e);
+        metrics.stopTimer(blockBreakTime, start);
+    }
+
+    private void handleBlockBreak(BlockBreakEvent e) {
         Block block = e.getBlock();
         UUID uuid = e.getPlayer().getUniqueId();
         Material mat = block.getType();
+        boolean persistedPlaced = persistentPlaced != null && persistentPlaced.remove(block);
 
-        List<String> potentialJobs = plugin.getJobConfigManager().getJobsForBlock(mat);
-        if (potentialJobs.isEmpty()) return;
+        JobConfigManager.BlockRule rule = plugin.getJobConfigManager().getBlockRule(mat);
+        if (rule.isEmpty()) return;
 
         JobProfile profile = activeProfiles.get(uuid);
         if (profile == null) return;
 
-        if (builderCooldownTracker.isRecent(block)) return;
+        if (builderCooldownTracker.isRecent(block)) {
+            rejectedCooldown.increment();
+            return;
+        }
 
-        ItemStack hand = e.getPlayer().getInventory().getItemInMainHand();
-        Material toolType = hand.getType();
+        Material toolType = e.getPlayer().getInventory().getItemInMainHand().getType();
 
         int extraBlocks = 0;
-        if (mat == Material.SUGAR_CANE || mat == Material.BAMBOO || mat == Material.CACTUS) {
+        if (rule.isStacking()) {
             Block above = block.getRelative(BlockFace.UP);
             while (above.getType() == mat) {
                 extraBlocks++;
                 above = above.getRelative(BlockFace.UP);
             }
         }
-        final int finalExtra = extraBlocks;
-
-        List<JobAction> actions = new ArrayList<>();
-
-        for (String jobId : potentialJobs) {
-            if (!profile.isJoined(jobId)) continue;
-
-            plugin.getDebugManager().recordAttempt(uuid, jobId, 1.0);
-
-            var cfg = plugin.getJobConfigManager().getJob(jobId);
-            if (cfg == null) continue;
-
-            if (!cfg.isValidTool(toolType)) continue;
-            if (!cfg.isValidBlock(mat)) continue;
-            if (!tryRateLimit(uuid, jobId, cfg.getMaxActionsPerSecond())) continue;
-
-            boolean applyRecentPlaced = jobId.equals("farmer") || jobId.equals("lumberjack") || jobId.equals("miner");
-            if (applyRecentPlaced && plugin.getJobConfigManager().isWhitelistedFor(jobId, mat)) {
-                if (placedBlockTracker.isRecent(block)) continue;
-            }
-
-            if (jobId.equals("farmer")) {
-                boolean requireFullyGrown =
-                        mat == Material.WHEAT ||
-                                mat == Material.POTATOES ||
-                                mat == Material.CARROTS ||
-                                mat == Material.BEETROOTS ||
-                                mat == Material.NETHER_WART ||
-                                mat == Material.COCOA ||
-                                mat == Material.SWEET_BERRY_BUSH;
-
-                if (requireFullyGrown) {
-                    if (!(block.getBlockData() instanceof Ageable crop)) continue;
-                    if (crop.getAge() < crop.getMaximumAge()) continue;
-                }
-            }
-
-            double decay = cfg.getStackDecayMultiplier();
-            double totalAmount = 1.0;
-            double currentBlockValue = 1.0;
-
-            for (int i = 0; i < finalExtra; i++) {
-                currentBlockValue *= decay;
-                totalAmount += currentBlockValue;
-            }
-
-            actions.add(new JobAction(jobId, totalAmount));
-        }
-
-        if (actions.isEmpty()) return;
+        breakFilter.evaluate(rule, profile, block, mat, toolType, extraBlocks, persistedPlaced, System.currentTimeMillis(),
+                new BlockBreakFilter.Sink() {
+                    @Override
+                    public void attempt(JobConfigManager.JobConfig cfg) {
+                        plugin.getDebugManager().recordAttempt(uuid, cfg.getId(), 1.0);
+                    }
+
+                    @Override
+                    public void reward(JobConfigManager.JobConfig cfg, double amount) {
+                        if (bursts == null) {
+                            submitAction(uuid, cfg, mat, amount);
+                        } else if (bursts.add(uuid, cfg.getIndex(), mat, amount, cfg.getBurstDecayMultiplier())) {
+                            Bukkit.getScheduler().runTaskLater(plugin, JobManager.this::flushBursts, burstWindowTicks);
+                        }
+                    }
+                });
+    }
 
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            for (JobAction a : actions) {
-                processAction(uuid, a.jobId, mat, a.amount);
+    private void flushBursts() {
+        long now = System.currentTimeMillis();
+        var jcm = plugin.getJobConfigManager();
+        bursts.drain((uuid, jobIndex, mat, amount, events) -> {
+            JobProfile profile = activeProfiles.get(uuid);
+            var cfg = jcm.getJob(jobIndex);
+            if (profile == null || cfg == null) return;
+            if (!tryRateLimit(profile, cfg, now)) {
+                rejectedRateLimited.add(events);
+                return;
             }
+            submitAction(uuid, cfg, mat, amount);
         });
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onFish(PlayerFishEvent e) {
+        long start = metrics.startTimer();
+        handleFish(e);
+        metrics.stopTimer(fishTime, start);
+    }
+
+    private void handleFish(PlayerFishEvent e) {
         if (e.getState() != PlayerFishEvent.State.CAUGHT_FISH) return;
         if (!(e.getCaught() instanceof Item item)) return;
 
@@ -329,106 +670,219 @@ public class JobManager implements Listener {
         var cfg = plugin.getJobConfigManager().getJob("fisherman");
         if (cfg == null) return;
 
-        if (profile.isJoined("fisherman")) plugin.getDebugManager().recordAttempt(uuid, "fisherman", 1.0);
+        if (profile.isJoined(cfg.getIndex())) plugin.getDebugManager().recordAttempt(uuid, "fisherman", 1.0);
 
         if (!cfg.isValidBlock(mat)) return;
-        if (!tryRateLimit(uuid, "fisherman", cfg.getMaxActionsPerSecond())) return;
+        if (!rateLimit(profile, cfg, System.currentTimeMillis())) return;
+
+        submitAction(uuid, cfg, mat, 1.0);
+    }
 
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> processAction(uuid, "fisherman", mat, 1.0));
+    private boolean rateLimit(JobProfile profile, JobConfigManager.JobConfig cfg, long nowMs) {
+        if (tryRateLimit(profile, cfg, nowMs)) return true;
+        rejectedRateLimited.increment();
+        return false;
     }
 
-    private boolean tryRateLimit(UUID uuid, String jobId, int maxActions) {
+    static boolean tryRateLimit(JobProfile profile, JobConfigManager.JobConfig cfg, long nowMs) {
+        int maxActions = cfg.getMaxActionsPerSecond();
         if (maxActions <= 0) return true;
-        Map<String, StrictRateLimiter> userBuckets = rateLimiters.computeIfAbsent(uuid, k -> new ConcurrentHashMap<>());
-        StrictRateLimiter limiter = userBuckets.computeIfAbsent(jobId, k -> new StrictRateLimiter(maxActions));
-        return limiter.tryAction();
+        int slot = cfg.getIndex();
+        AtomicLongArray state = profile.getRateLimitState(slot + 1);
+        if (cfg.isTokenBucket()) return RateLimiter.tryTokenBucket(state, slot, maxActions, cfg.getBurst(), nowMs);
+        return RateLimiter.tryWindow(state, slot, maxActions, nowMs);
+    }
+
+    private void submitAction(UUID uuid, JobConfigManager.JobConfig cfg, Material mat, double amount) {
+        actionsAccepted.increment();
+        if (actionQueue.offer(uuid, cfg.getIndex(), mat, amount)) return;
+        processAction(uuid, cfg.getIndex(), mat, amount);
+    }
+
+    private void drainActions() {
+        if (!draining.compareAndSet(false, true)) return;
+        try {
+            drainQueued();
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    private void drainQueued() {
+        while (actionQueue.drainTo(actionBatch) > 0) {
+            long start = metrics.startTimer();
+            try {
+                processBatch(actionBatch);
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            } finally {
+                actionBatch.clear();
+                metrics.stopTimer(actionBatchTime, start);
+            }
+        }
     }
 
-    private void processAction(UUID uuid, String jobId, Material mat, double amount) {
+    private void processBatch(ActionQueue.Batch batch) {
+        batch.group();
+        var jcm = plugin.getJobConfigManager();
+
+        for (int g = 0; g < batch.groupCount(); g++) {
+            int head = batch.groupHead(g);
+            UUID uuid = batch.uuid(head);
+            JobProfile profile = activeProfiles.get(uuid);
+            if (profile == null) continue;
+
+            double moneyToPay = 0.0;
+            List<LevelUp> levelUps = null;
+
+            synchronized (profile) {
+                for (int i = head; i != -1; i = batch.next(i)) {
+                    int jobIndex = batch.jobIndex(i);
+                    if (!profile.isJoined(jobIndex)) continue;
+
+                    var cfg = jcm.getJob(jobIndex);
+                    if (cfg == null) continue;
+                    if (!cfg.isValidBlock(batch.material(i))) continue;
+
+                    double amount = batch.amount(i);
+                    plugin.getDebugManager().recordSuccess(uuid, cfg.getId(), amount);
+
+                    int before = profile.getLevel(jobIndex);
+                    moneyToPay += applyAction(uuid, profile, cfg, amount);
+                    int after = profile.getLevel(jobIndex);
+
+                    if (after != before) {
+                        if (levelUps == null) levelUps = new ArrayList<>(2);
+                        levelUps.add(new LevelUp(cfg.getDisplayName(), after));
+                    }
+                }
+            }
+
+            if (moneyToPay > 0) plugin.getEconomyUtil().deposit(uuid, moneyToPay);
+            if (levelUps != null) sendLevelUps(uuid, levelUps);
+        }
+    }
+
+    private void processAction(UUID uuid, int jobIndex, Material mat, double amount) {
         JobProfile profile = activeProfiles.get(uuid);
-        if (profile == null || !profile.isJoined(jobId)) return;
+        if (profile == null || !profile.isJoined(jobIndex)) return;
 
-        var cfg = plugin.getJobConfigManager().getJob(jobId);
+        var cfg = plugin.getJobConfigManager().getJob(jobIndex);
         if (cfg == null) return;
         if (!cfg.isValidBlock(mat)) return;
 
-        plugin.getDebugManager().recordSuccess(uuid, jobId, amount);
+        plugin.getDebugManager().recordSuccess(uuid, cfg.getId(), amount);
 
         double moneyToPay;
-        boolean leveled;
-        int newLevelVal;
-        String displayName = cfg.getDisplayName();
+        int before;
+        int after;
 
         synchronized (profile) {
-            double gainedXp = cfg.getXpPerAction() * amount;
-            profile.addXp(jobId, gainedXp);
-
-            int currentLevel = profile.getLevel(jobId);
-            double tenureMult = profile.getTenureMultiplier(jobId);
-            moneyToPay = cfg.getIncome(currentLevel) * amount * tenureMult;
+            before = profile.getLevel(jobIndex);
+            moneyToPay = applyAction(uuid, profile, cfg, amount);
+            after = profile.getLevel(jobIndex);
+        }
 
-            long req = cfg.getRequiredXp(currentLevel);
-            leveled = req != -1 && profile.getXp(jobId) >= req;
-            newLevelVal = currentLevel;
+        if (moneyToPay > 0) plugin.getEconomyUtil().deposit(uuid, moneyToPay);
+        if (after != before) sendLevelUps(uuid, List.of(new LevelUp(cfg.getDisplayName(), after)));
+    }
 
-            if (leveled) {
-                newLevelVal = currentLevel + 1;
-                profile.setLevel(jobId, newLevelVal);
-                profile.setXp(jobId, profile.getXp(jobId) - req);
-            }
+    private double applyAction(UUID uuid, JobProfile profile, JobConfigManager.JobConfig cfg, double amount) {
+        int jobIndex = cfg.getIndex();
+        int levelBefore = profile.getLevel(jobIndex);
+        double xpBefore = profile.getXp(jobIndex);
+        double money = applyReward(profile, cfg, amount);
+        if (journal != null) {
+            long seq = journal.append(uuid, jobIndex,
+                    profile.getXp(jobIndex) - xpBefore, profile.getLevel(jobIndex) - levelBefore);
+            if (seq != 0L) profile.setJournalSeq(seq);
         }
+        plugin.getLeaderboardManager().update(jobIndex, uuid, profile.getLevel(jobIndex), profile.getXp(jobIndex));
+        plugin.getPeriodLeaderboards().record(uuid, jobIndex, cfg.getXpPerAction() * amount);
+        return money;
+    }
 
-        if (moneyToPay <= 0 && !leveled) return;
+    static double applyReward(JobProfile profile, JobConfigManager.JobConfig cfg, double amount) {
+        int jobIndex = cfg.getIndex();
+        double gainedXp = cfg.getXpPerAction() * amount;
+        profile.addXp(jobIndex, gainedXp);
 
-        final int finalNewLevel = newLevelVal;
+        int currentLevel = profile.getLevel(jobIndex);
+        double tenureMult = profile.getTenureMultiplier(jobIndex);
+        double money = cfg.getIncome(currentLevel) * amount * tenureMult;
 
+        long req = cfg.getRequiredXp(currentLevel);
+        if (req != -1 && profile.getXp(jobIndex) >= req) {
+            profile.setLevel(jobIndex, currentLevel + 1);
+            profile.setXp(jobIndex, profile.getXp(jobIndex) - req);
+        }
+
+        return money;
+    }
+
+    private void sendLevelUps(UUID uuid, List<LevelUp> levelUps) {
         Bukkit.getScheduler().runTask(plugin, () -> {
             Player p = Bukkit.getPlayer(uuid);
-            if (p != null) {
-                if (moneyToPay > 0) plugin.getEconomyUtil().deposit(p, moneyToPay);
-
-                if (leveled) {
-                    String msg = plugin.getMessagesConfig().getString("level-up", "Level Up!")
-                            .replace("%job%", displayName)
-                            .replace("%level%", String.valueOf(finalNewLevel));
-                    plugin.getMessageUtil().sendMessage(p, msg);
-                }
+            if (p == null) return;
+            MessageTemplate template = plugin.getMessageUtil().template("level-up");
+            if (template.isEmpty()) return;
+            for (LevelUp up : levelUps) {
+                p.sendMessage(template.render(
+                        MessageTemplate.Slot.JOB, up.displayName,
+                        MessageTemplate.Slot.LEVEL, NumberFormats.integer(up.level)));
             }
         });
     }
 
-    private static class JobAction {
-        final String jobId;
-        final double amount;
+    public ProfileSaver getProfileSaver() {
+        return profileSaver;
+    }
+
+    public int getActiveProfileCount() {
+        return activeProfiles.size();
+    }
 
-        JobAction(String jobId, double amount) {
-            this.jobId = jobId;
-            this.amount = amount;
-        }
+    public ProfileLoader getProfileLoader() {
+        return profileLoader;
+    }
+
+    public int getActionQueueDepth() {
+        return actionQueue.size();
+    }
+
+    public long getBurstEventCount() {
+        return bursts == null ? 0L : bursts.getEvents();
+    }
+
+    public long getBurstCount() {
+        return bursts == null ? 0L : bursts.getBursts();
+    }
+
+    public long getActionQueueOfferedCount() {
+        return actionQueue.getOfferedCount();
     }
 
-    private static class StrictRateLimiter {
-        private final int maxActions;
-        private long currentSecond;
-        private int count;
+    public long getActionQueuePeakDepth() {
+        return actionQueue.getPeakDepth();
+    }
+
+    public long getActionQueueOverflowCount() {
+        return actionQueue.getRejectedCount();
+    }
 
-        public StrictRateLimiter(int maxActions) {
-            this.maxActions = maxActions;
-            this.currentSecond = System.currentTimeMillis() / 1000;
-            this.count = 0;
+    private record Preloaded(JobProfile profile, long at, long revision) {
+        Preloaded(JobProfile profile) {
+            this(profile, System.currentTimeMillis(), profile.getRevision());
         }
+    }
 
-        public synchronized boolean tryAction() {
-            long nowSec = System.currentTimeMillis() / 1000;
-            if (nowSec > currentSecond) {
-                currentSecond = nowSec;
-                count = 0;
-            }
-            if (count < maxActions) {
-                count++;
-                return true;
-            }
-            return false;
+    private static class LevelUp {
+        final String displayName;
+        final int level;
+
+        LevelUp(String displayName, int level) {
+            this.displayName = displayName;
+            this.level = level;
         }
     }
 }
@@ -1,80 +1,209 @@
 package me.perch.manager;
 
 import me.perch.Jobs;
+import me.perch.data.JobIndex;
+import me.perch.metrics.MetricsRegistry;
+import me.perch.util.LatencyHistogram;
+import me.perch.util.RankTree;
 import org.bukkit.Bukkit;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class LeaderboardManager {
 
     private final Jobs plugin;
 
-    private volatile Map<String, List<UUID>> topLists = new ConcurrentHashMap<>();
-    private volatile Map<String, Integer> totalPlayers = new ConcurrentHashMap<>();
+    private volatile RankTree[] boards = new RankTree[0];
+    private volatile Snapshot[] snapshots = new Snapshot[0];
+    private final AtomicLong generation = new AtomicLong();
+    private final int snapshotSize;
+    private final MetricsRegistry metrics;
+    private final LatencyHistogram refreshTime;
+    private long publishedGeneration = -1L;
+
+    public record Entry(int rank, UUID uuid, int level, double xp, String name) {}
+
+    public static final class Snapshot {
+        private final int count;
+        private final List<Entry> entries;
+        private final Map<UUID, Entry> byUuid;
+
+        Snapshot(int count, List<Entry> entries) {
+            this.count = count;
+            this.entries = List.copyOf(entries);
+            this.byUuid = new HashMap<>(entries.size() * 2);
+            for (Entry e : entries) byUuid.put(e.uuid(), e);
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public List<Entry> getEntries() {
+            return entries;
+        }
+
+        public Entry get(UUID uuid) {
+            return byUuid.get(uuid);
+        }
+
+        public Entry at(int rank) {
+            return rank < 1 || rank > entries.size() ? null : entries.get(rank - 1);
+        }
+
+        public int getPages(int pageSize) {
+            return (entries.size() + pageSize - 1) / pageSize;
+        }
+
+        public List<Entry> page(int page, int pageSize) {
+            int from = (page - 1) * pageSize;
+            if (page < 1 || from >= entries.size()) return List.of();
+            return entries.subList(from, Math.min(entries.size(), from + pageSize));
+        }
+    }
+
+    private static final Snapshot EMPTY = new Snapshot(0, List.of());
 
     public LeaderboardManager(Jobs plugin) {
         this.plugin = plugin;
+        this.snapshotSize = Math.max(1, plugin.getConfig().getInt("leaderboard.snapshot-size", 100));
+        this.metrics = plugin.getMetrics();
+        this.refreshTime = metrics.timer("perchjobs_leaderboard_refresh_seconds", "Time spent publishing leaderboard snapshots");
+        long refreshTicks = Math.max(1L, plugin.getConfig().getLong("leaderboard.refresh-ticks", 40L));
 
-        Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::refresh, 100L, 6000L);
+        plugin.getIoExecutor().execute(this::seed);
+        Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::refresh, refreshTicks, refreshTicks);
     }
 
-    private void refresh() {
-        if (plugin.getDataSource() == null) return;
+    private void seed() {
+        if (plugin.getLeaderboardStore() == null) return;
 
-        Set<String> jobs = plugin.getJobConfigManager().getAllJobIds();
-        Map<String, List<UUID>> newTopLists = new HashMap<>();
-        Map<String, Integer> newTotals = new HashMap<>();
+        long start = System.nanoTime();
+        int rows;
 
-        try (Connection conn = plugin.getDataSource().getConnection()) {
+        try {
+            rows = plugin.getLeaderboardStore().scanLevels((uuid, jobId, level, xp) ->
+                    board(JobIndex.of(jobId)).seed(uuid, level, xp));
+            generation.incrementAndGet();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return;
+        }
 
-            for (String job : jobs) {
+        long ms = (System.nanoTime() - start) / 1_000_000L;
+        plugin.getLogger().info("Loaded " + rows + " leaderboard entries in " + ms + "ms.");
+        refresh();
+    }
 
-                List<UUID> top = new ArrayList<>();
-                try (PreparedStatement ps = conn.prepareStatement(
-                        "SELECT uuid FROM job_levels WHERE job_id=? ORDER BY level DESC, xp DESC LIMIT 100")) {
-                    ps.setString(1, job);
-                    ResultSet rs = ps.executeQuery();
-                    while (rs.next()) {
-                        top.add(UUID.fromString(rs.getString("uuid")));
-                    }
-                }
-                newTopLists.put(job, top);
+    private synchronized void refresh() {
+        long gen = generation.get();
+        if (gen == publishedGeneration) return;
+
+        long start = metrics.startTimer();
+        RankTree[] b = boards;
+        Snapshot[] old = snapshots;
+        Snapshot[] next = new Snapshot[b.length];
+        for (int i = 0; i < b.length; i++) {
+            if (b[i] == null) continue;
+            Snapshot prev = i < old.length ? old[i] : null;
+            int count = b[i].size();
+            List<RankTree.Ranked> top = b[i].topEntries(snapshotSize);
+            List<Entry> entries = new ArrayList<>(top.size());
+            for (RankTree.Ranked ranked : top) {
+                Entry known = prev != null ? prev.get(ranked.uuid()) : null;
+                String name = resolveName(ranked.uuid(), known != null ? known.name() : null);
+                entries.add(new Entry(entries.size() + 1, ranked.uuid(), ranked.level(), ranked.xp(), name));
+            }
+            next[i] = new Snapshot(count, entries);
+        }
+        snapshots = next;
+        publishedGeneration = gen;
+        metrics.stopTimer(refreshTime, start);
+    }
 
+    private String resolveName(UUID uuid, String known) {
+        JobManager jobs = plugin.getJobManager();
+        String name = jobs != null ? jobs.getPlayerName(uuid) : null;
+        if (name != null) return name;
+        if (known != null) return known;
+        name = Bukkit.getOfflinePlayer(uuid).getName();
+        if (name != null && jobs != null) jobs.getOfflineCache().rememberName(uuid, name);
+        return name;
+    }
 
-                try (PreparedStatement ps = conn.prepareStatement(
-                        "SELECT COUNT(*) FROM job_levels WHERE job_id=?")) {
-                    ps.setString(1, job);
-                    ResultSet rs = ps.executeQuery();
-                    if (rs.next()) newTotals.put(job, rs.getInt(1));
-                }
-            }
+    public Snapshot getSnapshot(String jobId) {
+        int idx = JobIndex.find(jobId);
+        Snapshot[] s = snapshots;
+        Snapshot snapshot = (idx >= 0 && idx < s.length) ? s[idx] : null;
+        return snapshot != null ? snapshot : EMPTY;
+    }
+
+    private RankTree board(int jobIndex) {
+        RankTree[] b = boards;
+        if (jobIndex < b.length && b[jobIndex] != null) return b[jobIndex];
+        return createBoard(jobIndex);
+    }
 
-            topLists = Map.copyOf(newTopLists);
-            totalPlayers = Map.copyOf(newTotals);
+    private synchronized RankTree createBoard(int jobIndex) {
+        RankTree[] b = boards;
+        if (jobIndex >= b.length) b = Arrays.copyOf(b, Math.max(jobIndex + 1, JobIndex.size()));
+        if (b[jobIndex] == null) b[jobIndex] = new RankTree();
+        boards = b;
+        return b[jobIndex];
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+    private RankTree find(String jobId) {
+        int idx = JobIndex.find(jobId);
+        RankTree[] b = boards;
+        return (idx >= 0 && idx < b.length) ? b[idx] : null;
+    }
+
+    public void update(int jobIndex, UUID uuid, int level, double xp) {
+        if (jobIndex < 0) return;
+        board(jobIndex).update(uuid, level, xp);
+        generation.incrementAndGet();
+    }
+
+    public void update(String jobId, UUID uuid, int level, double xp) {
+        update(JobIndex.of(jobId), uuid, level, xp);
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public void onNameSeen(UUID uuid, String name) {
+        for (Snapshot snapshot : snapshots) {
+            Entry entry = snapshot != null ? snapshot.get(uuid) : null;
+            if (entry != null && !name.equals(entry.name())) {
+                generation.incrementAndGet();
+                return;
+            }
         }
     }
 
     public int getRank(String jobId, UUID uuid) {
-        List<UUID> list = topLists.get(jobId);
-        if (list == null) return 0;
-        int index = list.indexOf(uuid);
-        return (index == -1) ? 0 : index + 1;
+        Entry entry = getSnapshot(jobId).get(uuid);
+        if (entry != null) return entry.rank();
+        RankTree board = find(jobId);
+        return board == null ? 0 : board.rank(uuid);
     }
 
     public int getCount(String jobId) {
-        return totalPlayers.getOrDefault(jobId, 0);
+        RankTree board = find(jobId);
+        return board == null ? 0 : board.size();
     }
 
     public UUID getPlayerAtRank(String jobId, int rank) {
-        List<UUID> list = topLists.get(jobId);
-        if (list == null || rank < 1 || rank > list.size()) return null;
-        return list.get(rank - 1);
+        RankTree board = find(jobId);
+        return board == null ? null : board.select(rank);
+    }
+
+    public String getNameAtRank(String jobId, int rank) {
+        Entry entry = getSnapshot(jobId).at(rank);
+        if (entry != null) return entry.name();
+        UUID uuid = getPlayerAtRank(jobId, rank);
+        return uuid == null ? null : plugin.getJobManager().getPlayerName(uuid);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,174 @@
+package me.perch.manager;
+
+import me.perch.Jobs;
+import me.perch.data.JobProfile;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+public class OfflineProfileCache {
+
+    private final Jobs plugin;
+    private final Function<UUID, CompletableFuture<JobProfile>> loader;
+    private final Predicate<UUID> active;
+    private final int maxSize;
+    private final long ttlMs;
+    private final long refreshMs;
+    private final LinkedHashMap<UUID, Entry> entries;
+    private final LinkedHashMap<UUID, Name> names;
+    private final Set<UUID> refreshing = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> resolvingNames = ConcurrentHashMap.newKeySet();
+
+    public OfflineProfileCache(Jobs plugin, Function<UUID, CompletableFuture<JobProfile>> loader, Predicate<UUID> active) {
+        this.plugin = plugin;
+        this.loader = loader;
+        this.active = active;
+        this.maxSize = Math.max(0, plugin.getConfig().getInt("offline-cache.max-size", 2000));
+        this.ttlMs = Math.max(1L, plugin.getConfig().getLong("offline-cache.ttl-seconds", 900L)) * 1000L;
+        this.refreshMs = Math.max(1L, plugin.getConfig().getLong("offline-cache.refresh-seconds", 60L)) * 1000L;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.names = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Name> eldest) {
+                return size() > Math.max(64, maxSize);
+            }
+        };
+    }
+
+    private static final class Entry {
+        final JobProfile profile;
+        final long loadedAt;
+        long accessedAt;
+
+        Entry(JobProfile profile, long now) {
+            this.profile = profile;
+            this.loadedAt = now;
+            this.accessedAt = now;
+        }
+    }
+
+    private record Name(String name, long fetchedAt) {}
+
+    public synchronized void put(UUID uuid, JobProfile profile) {
+        if (maxSize == 0) return;
+        entries.put(uuid, new Entry(profile, System.currentTimeMillis()));
+    }
+
+    public synchronized JobProfile putIfAbsent(UUID uuid, JobProfile profile) {
+        JobProfile existing = get(uuid);
+        if (existing != null) return existing;
+        put(uuid, profile);
+        return profile;
+    }
+
+    public synchronized JobProfile remove(UUID uuid) {
+        Entry e = entries.remove(uuid);
+        return e == null ? null : e.profile;
+    }
+
+    public synchronized JobProfile get(UUID uuid) {
+        Entry e = live(uuid, System.currentTimeMillis());
+        return e == null ? null : e.profile;
+    }
+
+    public JobProfile getOrRefresh(UUID uuid) {
+        long now = System.currentTimeMillis();
+        Entry e;
+        synchronized (this) {
+            e = live(uuid, now);
+        }
+        if (e == null || now - e.loadedAt >= refreshMs) refresh(uuid, e);
+        return e == null ? null : e.profile;
+    }
+
+    private Entry live(UUID uuid, long now) {
+        Entry e = entries.get(uuid);
+        if (e == null) return null;
+        if (now - e.accessedAt > ttlMs) {
+            entries.remove(uuid);
+            return null;
+        }
+        e.accessedAt = now;
+        return e;
+    }
+
+    private void refresh(UUID uuid, Entry stale) {
+        if (maxSize == 0 || active.test(uuid)) return;
+        if (stale != null && stale.profile.isDirty()) return;
+        if (!refreshing.add(uuid)) return;
+
+        loader.apply(uuid).whenComplete((profile, ex) -> {
+            refreshing.remove(uuid);
+            if (ex != null) {
+                ex.printStackTrace();
+                return;
+            }
+            if (profile == null) return;
+            synchronized (this) {
+                if (active.test(uuid)) return;
+                Entry cur = entries.get(uuid);
+                if (cur != stale) return;
+                if (cur != null && cur.profile.isDirty()) return;
+                entries.put(uuid, new Entry(profile, System.currentTimeMillis()));
+            }
+        });
+    }
+
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                if (now - it.next().accessedAt > ttlMs) it.remove();
+            }
+            names.values().removeIf(n -> now - n.fetchedAt() > ttlMs);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void rememberName(UUID uuid, String name) {
+        if (name != null) names.put(uuid, new Name(name, System.currentTimeMillis()));
+    }
+
+    public String getName(UUID uuid) {
+        Player online = Bukkit.getPlayer(uuid);
+        if (online != null) return online.getName();
+
+        long now = System.currentTimeMillis();
+        Name cached;
+        synchronized (this) {
+            cached = names.get(uuid);
+        }
+        if (cached == null || now - cached.fetchedAt() >= refreshMs) resolveName(uuid);
+        return cached == null ? null : cached.name();
+    }
+
+    private void resolveName(UUID uuid) {
+        if (!resolvingNames.add(uuid)) return;
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                String name = Bukkit.getOfflinePlayer(uuid).getName();
+                if (name != null) rememberName(uuid, name);
+            } finally {
+                resolvingNames.remove(uuid);
+            }
+        });
+    }
+}
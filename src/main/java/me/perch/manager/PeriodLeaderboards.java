@@ -0,0 +1,338 @@
+package me.perch.manager;
+
+import me.perch.Jobs;
+import me.perch.data.JobIndex;
+import me.perch.storage.LeaderboardStore;
+import me.perch.util.RankTree;
+import org.bukkit.Bukkit;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class PeriodLeaderboards {
+
+    private static final int RING_DAYS = 32;
+
+    public enum Period {
+        DAILY, WEEKLY, MONTHLY;
+
+        long start(long day) {
+            return switch (this) {
+                case DAILY -> day;
+                case WEEKLY -> LocalDate.ofEpochDay(day).with(DayOfWeek.MONDAY).toEpochDay();
+                case MONTHLY -> LocalDate.ofEpochDay(day).withDayOfMonth(1).toEpochDay();
+            };
+        }
+
+        public static Period parse(String raw) {
+            return switch (raw.toLowerCase(Locale.ROOT)) {
+                case "daily" -> DAILY;
+                case "weekly" -> WEEKLY;
+                case "monthly" -> MONTHLY;
+                default -> null;
+            };
+        }
+    }
+
+    private static final class Ring {
+        final double[] xp = new double[RING_DAYS];
+        final long[] days = new long[RING_DAYS];
+        long lastDay = Long.MIN_VALUE;
+
+        Ring() {
+            Arrays.fill(days, Long.MIN_VALUE);
+        }
+
+        void add(long day, double amount) {
+            int slot = (int) Math.floorMod(day, (long) RING_DAYS);
+            if (days[slot] != day) {
+                days[slot] = day;
+                xp[slot] = 0.0;
+            }
+            xp[slot] += amount;
+            if (day > lastDay) lastDay = day;
+        }
+
+        double sum(long from, long to) {
+            double total = 0.0;
+            for (long d = Math.max(from, to - RING_DAYS + 1); d <= to; d++) {
+                int slot = (int) Math.floorMod(d, (long) RING_DAYS);
+                if (days[slot] == d) total += xp[slot];
+            }
+            return total;
+        }
+    }
+
+    private static final class Board {
+        final long start;
+        final RankTree top = new RankTree();
+        int participants;
+        boolean changed = true;
+
+        Board(long start) {
+            this.start = start;
+        }
+    }
+
+    private record Cell(UUID uuid, int jobIndex, long day) {}
+
+    private record Gain(UUID uuid, int jobIndex, long day, double xp) {}
+
+    private record Standing(long start, int participants, List<UUID> ranked, Map<UUID, Integer> ranks) {}
+
+    private static final Standing NONE = new Standing(Long.MIN_VALUE, 0, List.of(), Map.of());
+
+    private final Jobs plugin;
+    private final int size;
+    private final Queue<Gain> incoming = new ConcurrentLinkedQueue<>();
+    private final Map<UUID, Ring[]> rings = new HashMap<>();
+    private final Map<UUID, double[][]> totals = new ConcurrentHashMap<>();
+    private final Set<UUID> touched = new HashSet<>();
+    private final Board[][] boards = new Board[Period.values().length][];
+    private volatile Standing[][] standings = new Standing[Period.values().length][0];
+    private Map<Cell, Double> unsaved = new HashMap<>();
+    private volatile long today;
+    private volatile boolean loaded;
+
+    public PeriodLeaderboards(Jobs plugin) {
+        this.plugin = plugin;
+        this.size = Math.max(1, plugin.getConfig().getInt("period-boards.size", 100));
+        this.today = currentDay();
+        for (Period period : Period.values()) boards[period.ordinal()] = new Board[0];
+
+        long flushTicks = Math.max(20L, plugin.getConfig().getLong("period-boards.flush-ticks", 1200L));
+        long foldTicks = Math.max(1L, plugin.getConfig().getLong("period-boards.fold-ticks", 20L));
+        plugin.getIoExecutor().execute(this::load);
+        Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::fold, foldTicks, foldTicks);
+        Bukkit.getScheduler().runTaskTimer(plugin, () -> plugin.getIoExecutor().execute(this::flush), flushTicks, flushTicks);
+    }
+
+    private static long currentDay() {
+        return LocalDate.now(ZoneId.systemDefault()).toEpochDay();
+    }
+
+    private void load() {
+        LeaderboardStore store = plugin.getLeaderboardStore();
+        long day = currentDay();
+        long start = System.nanoTime();
+        try {
+            int retention = Math.max(RING_DAYS, plugin.getConfig().getInt("period-boards.retention-days", 90));
+            store.pruneDailyXp(day - retention);
+            int rows = store.scanDailyXp(day - RING_DAYS + 1, (uuid, jobId, d, xp) -> {
+                synchronized (this) {
+                    add(uuid, JobIndex.of(jobId), d, xp);
+                }
+            });
+            synchronized (this) {
+                publish();
+            }
+            long ms = (System.nanoTime() - start) / 1_000_000L;
+            plugin.getLogger().info("Loaded " + rows + " daily XP bucket(s) in " + ms + "ms.");
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            loaded = true;
+        }
+    }
+
+    public void record(UUID uuid, int jobIndex, double xp) {
+        if (jobIndex < 0 || xp <= 0.0) return;
+        incoming.add(new Gain(uuid, jobIndex, currentDay(), xp));
+    }
+
+    private synchronized void fold() {
+        long day = currentDay();
+        boolean rolled = day != today;
+        if (rolled) roll(day);
+        Gain gain;
+        boolean changed = false;
+        while ((gain = incoming.poll()) != null) {
+            if (gain.day() > today) roll(gain.day());
+            add(gain.uuid(), gain.jobIndex(), gain.day(), gain.xp());
+            unsaved.merge(new Cell(gain.uuid(), gain.jobIndex(), gain.day()), gain.xp(), Double::sum);
+            changed = true;
+        }
+        if (changed || rolled) publish();
+    }
+
+    private void add(UUID uuid, int jobIndex, long day, double xp) {
+        if (jobIndex < 0 || day > today || day <= today - RING_DAYS) return;
+        Ring[] perJob = rings.computeIfAbsent(uuid, u -> new Ring[JobIndex.size()]);
+        if (jobIndex >= perJob.length) {
+            perJob = Arrays.copyOf(perJob, Math.max(jobIndex + 1, JobIndex.size()));
+            rings.put(uuid, perJob);
+        }
+        Ring ring = perJob[jobIndex];
+        if (ring == null) ring = perJob[jobIndex] = new Ring();
+        ring.add(day, xp);
+
+        for (Period period : Period.values()) {
+            Board board = board(period, jobIndex);
+            if (day < board.start) continue;
+            double total = ring.sum(board.start, today);
+            if (total - xp <= 0.0) board.participants++;
+            board.top.update(uuid, 0, total);
+            if (board.top.size() > size) board.top.remove(board.top.select(board.top.size()));
+            board.changed = true;
+        }
+        touched.add(uuid);
+    }
+
+    private void publishTotals(UUID uuid, Ring[] perJob) {
+        Period[] periods = Period.values();
+        double[][] byJob = new double[perJob.length][];
+        for (int j = 0; j < perJob.length; j++) {
+            if (perJob[j] == null) continue;
+            double[] sums = new double[periods.length];
+            for (Period period : periods) sums[period.ordinal()] = perJob[j].sum(period.start(today), today);
+            byJob[j] = sums;
+        }
+        totals.put(uuid, byJob);
+    }
+
+    private void publish() {
+        for (UUID uuid : touched) {
+            Ring[] perJob = rings.get(uuid);
+            if (perJob != null) publishTotals(uuid, perJob);
+        }
+        touched.clear();
+
+        Standing[][] old = standings;
+        Standing[][] next = new Standing[boards.length][];
+        for (int p = 0; p < boards.length; p++) {
+            Board[] byJob = boards[p];
+            next[p] = new Standing[byJob.length];
+            for (int j = 0; j < byJob.length; j++) {
+                Board board = byJob[j];
+                if (board == null) continue;
+                Standing prev = j < old[p].length ? old[p][j] : null;
+                if (!board.changed && prev != null && prev.start() == board.start) {
+                    next[p][j] = prev;
+                    continue;
+                }
+                List<RankTree.Ranked> top = board.top.topEntries(size);
+                List<UUID> ranked = new ArrayList<>(top.size());
+                Map<UUID, Integer> ranks = new HashMap<>(top.size() * 2);
+                for (RankTree.Ranked entry : top) {
+                    ranked.add(entry.uuid());
+                    ranks.put(entry.uuid(), ranked.size());
+                }
+                next[p][j] = new Standing(board.start, board.participants, List.copyOf(ranked), ranks);
+                board.changed = false;
+            }
+        }
+        standings = next;
+    }
+
+    private Board board(Period period, int jobIndex) {
+        Board[] byJob = boards[period.ordinal()];
+        if (jobIndex >= byJob.length) {
+            byJob = Arrays.copyOf(byJob, Math.max(jobIndex + 1, JobIndex.size()));
+            boards[period.ordinal()] = byJob;
+        }
+        long start = period.start(today);
+        Board board = byJob[jobIndex];
+        if (board == null || board.start != start) board = byJob[jobIndex] = new Board(start);
+        return board;
+    }
+
+    private void roll(long day) {
+        today = day;
+        for (Period period : Period.values()) {
+            long start = period.start(day);
+            Board[] byJob = boards[period.ordinal()];
+            for (int i = 0; i < byJob.length; i++) {
+                if (byJob[i] != null && byJob[i].start != start) byJob[i] = new Board(start);
+            }
+        }
+        Iterator<Ring[]> it = rings.values().iterator();
+        while (it.hasNext()) {
+            boolean live = false;
+            for (Ring ring : it.next()) {
+                if (ring != null && ring.lastDay > day - RING_DAYS) {
+                    live = true;
+                    break;
+                }
+            }
+            if (!live) it.remove();
+        }
+        totals.keySet().retainAll(rings.keySet());
+        touched.addAll(rings.keySet());
+    }
+
+    public void flush() {
+        if (loaded) save();
+    }
+
+    public void shutdown() {
+        fold();
+        save();
+    }
+
+    private void save() {
+        Map<Cell, Double> batch;
+        synchronized (this) {
+            if (unsaved.isEmpty()) return;
+            batch = unsaved;
+            unsaved = new HashMap<>();
+        }
+
+        List<LeaderboardStore.DailyXp> rows = new ArrayList<>(batch.size());
+        batch.forEach((cell, xp) -> rows.add(new LeaderboardStore.DailyXp(cell.uuid(), JobIndex.name(cell.jobIndex()), cell.day(), xp)));
+        try {
+            plugin.getLeaderboardStore().addDailyXp(rows);
+        } catch (Exception e) {
+            e.printStackTrace();
+            synchronized (this) {
+                batch.forEach((cell, xp) -> unsaved.merge(cell, xp, Double::sum));
+            }
+        }
+    }
+
+    private Standing current(Period period, String jobId) {
+        int idx = JobIndex.find(jobId);
+        if (idx < 0) return NONE;
+        Standing[] byJob = standings[period.ordinal()];
+        Standing standing = idx < byJob.length ? byJob[idx] : null;
+        return standing != null && standing.start() == period.start(today) ? standing : NONE;
+    }
+
+    public UUID getPlayerAtRank(Period period, String jobId, int rank) {
+        List<UUID> ranked = current(period, jobId).ranked();
+        return rank < 1 || rank > ranked.size() ? null : ranked.get(rank - 1);
+    }
+
+    public double getXpAtRank(Period period, String jobId, int rank) {
+        UUID uuid = getPlayerAtRank(period, jobId, rank);
+        return uuid == null ? 0.0 : getXp(period, jobId, uuid);
+    }
+
+    public int getRank(Period period, String jobId, UUID uuid) {
+        return current(period, jobId).ranks().getOrDefault(uuid, 0);
+    }
+
+    public int getCount(Period period, String jobId) {
+        return current(period, jobId).participants();
+    }
+
+    public double getXp(Period period, String jobId, UUID uuid) {
+        int idx = JobIndex.find(jobId);
+        double[][] byJob = totals.get(uuid);
+        if (idx < 0 || byJob == null || idx >= byJob.length || byJob[idx] == null) return 0.0;
+        return byJob[idx][period.ordinal()];
+    }
+}
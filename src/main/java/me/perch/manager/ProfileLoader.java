@@ -0,0 +1,141 @@
+package me.perch.manager;
+
+import me.perch.Jobs;
+import me.perch.data.JobProfile;
+import me.perch.util.IoExecutor;
+import me.perch.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ProfileLoader {
+
+    private final Jobs plugin;
+    private final ProfileSaver saver;
+    private final IoExecutor io;
+    private final Map<UUID, CompletableFuture<JobProfile>> inFlight = new ConcurrentHashMap<>();
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+    private final int batchSize;
+
+    public ProfileLoader(Jobs plugin, ProfileSaver saver) {
+        this.plugin = plugin;
+        this.saver = saver;
+        this.io = plugin.getIoExecutor();
+        this.batchSize = Math.max(1, plugin.getConfig().getInt("load.batch-size", 500));
+    }
+
+    public CompletableFuture<JobProfile> load(UUID uuid) {
+        JobProfile unsaved = saver.peek(uuid);
+        if (unsaved != null) return CompletableFuture.completedFuture(unsaved);
+
+        CompletableFuture<JobProfile> future = new CompletableFuture<>();
+        CompletableFuture<JobProfile> existing = inFlight.putIfAbsent(uuid, future);
+        if (existing != null) return existing;
+
+        long start = System.nanoTime();
+        try {
+            io.execute(() -> {
+                try {
+                    JobProfile profile = plugin.getProfileStore().loadProfiles(List.of(uuid)).get(uuid);
+                    complete(uuid, future, profile != null ? profile : new JobProfile());
+                } catch (Exception ex) {
+                    inFlight.remove(uuid, future);
+                    future.completeExceptionally(ex);
+                } finally {
+                    loadLatency.recordNanos(System.nanoTime() - start);
+                }
+            });
+        } catch (RuntimeException ex) {
+            inFlight.remove(uuid, future);
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    public CompletableFuture<Map<UUID, JobProfile>> loadAll(Collection<UUID> uuids) {
+        Map<UUID, CompletableFuture<JobProfile>> futures = new HashMap<>();
+        List<Map.Entry<UUID, CompletableFuture<JobProfile>>> owned = new ArrayList<>();
+
+        for (UUID uuid : uuids) {
+            JobProfile unsaved = saver.peek(uuid);
+            if (unsaved != null) {
+                futures.put(uuid, CompletableFuture.completedFuture(unsaved));
+                continue;
+            }
+            CompletableFuture<JobProfile> future = new CompletableFuture<>();
+            CompletableFuture<JobProfile> existing = inFlight.putIfAbsent(uuid, future);
+            if (existing != null) {
+                futures.put(uuid, existing);
+            } else {
+                futures.put(uuid, future);
+                owned.add(Map.entry(uuid, future));
+            }
+        }
+
+        for (int from = 0; from < owned.size(); from += batchSize) {
+            List<Map.Entry<UUID, CompletableFuture<JobProfile>>> chunk = owned.subList(from, Math.min(owned.size(), from + batchSize));
+            try {
+                io.execute(() -> loadChunk(chunk));
+            } catch (RuntimeException ex) {
+                fail(chunk, ex);
+            }
+        }
+
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).thenApply(v -> {
+            Map<UUID, JobProfile> out = new HashMap<>(futures.size() * 2);
+            futures.forEach((uuid, future) -> out.put(uuid, future.join()));
+            return out;
+        });
+    }
+
+    private void loadChunk(List<Map.Entry<UUID, CompletableFuture<JobProfile>>> chunk) {
+        long start = System.nanoTime();
+        try {
+            List<UUID> uuids = new ArrayList<>(chunk.size());
+            for (Map.Entry<UUID, CompletableFuture<JobProfile>> e : chunk) uuids.add(e.getKey());
+
+            Map<UUID, JobProfile> found = plugin.getProfileStore().loadProfiles(uuids);
+            for (Map.Entry<UUID, CompletableFuture<JobProfile>> e : chunk) {
+                JobProfile profile = found.get(e.getKey());
+                complete(e.getKey(), e.getValue(), profile != null ? profile : new JobProfile());
+            }
+        } catch (Exception ex) {
+            fail(chunk, ex);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            batchLatency.recordNanos(elapsed);
+            for (int i = 0; i < chunk.size(); i++) loadLatency.recordNanos(elapsed);
+        }
+    }
+
+    private void complete(UUID uuid, CompletableFuture<JobProfile> future, JobProfile profile) {
+        inFlight.remove(uuid, future);
+        future.complete(profile);
+    }
+
+    private void fail(List<Map.Entry<UUID, CompletableFuture<JobProfile>>> chunk, Throwable ex) {
+        for (Map.Entry<UUID, CompletableFuture<JobProfile>> e : chunk) {
+            inFlight.remove(e.getKey(), e.getValue());
+            e.getValue().completeExceptionally(ex);
+        }
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    public LatencyHistogram getLoadLatency() {
+        return loadLatency;
+    }
+
+    public LatencyHistogram getBatchLatency() {
+        return batchLatency;
+    }
+}
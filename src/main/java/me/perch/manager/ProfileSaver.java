@@ -0,0 +1,240 @@
+package me.perch.manager;
+
+import me.perch.Jobs;
+import me.perch.data.JobProfile;
+import me.perch.metrics.MetricsRegistry;
+import me.perch.storage.ProfileStore;
+import me.perch.util.LatencyHistogram;
+import org.bukkit.Bukkit;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+public class ProfileSaver {
+
+    private final Jobs plugin;
+    private final Map<UUID, JobProfile> pending = new ConcurrentHashMap<>();
+    private final Map<UUID, JobProfile> inFlight = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final int batchSize;
+    private final long coalesceTicks;
+    private final MetricsRegistry metrics;
+    private final LatencyHistogram saveTime;
+    private final AtomicLong batchSeq = new AtomicLong();
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+    private volatile BiConsumer<UUID, JobProfile> saveListener;
+
+    private record Checkpoint(long afterBatch, Set<UUID> outstanding, CompletableFuture<Void> done) {}
+
+    public ProfileSaver(Jobs plugin) {
+        this.plugin = plugin;
+        this.batchSize = Math.max(1, plugin.getConfig().getInt("save.batch-size", 256));
+        this.coalesceTicks = Math.max(1L, plugin.getConfig().getLong("save.coalesce-ticks", 20L));
+        this.metrics = plugin.getMetrics();
+        this.saveTime = metrics.timer("perchjobs_save_batch_seconds", "Time spent writing one batch of dirty profiles");
+    }
+
+    public void setSaveListener(BiConsumer<UUID, JobProfile> saveListener) {
+        this.saveListener = saveListener;
+    }
+
+    public void enqueue(UUID uuid, JobProfile profile) {
+        pending.put(uuid, profile);
+    }
+
+    public JobProfile peek(UUID uuid) {
+        JobProfile profile = pending.get(uuid);
+        return profile != null ? profile : inFlight.get(uuid);
+    }
+
+    public JobProfile discard(UUID uuid) {
+        JobProfile profile = pending.remove(uuid);
+        return profile != null ? profile : inFlight.get(uuid);
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public boolean isIdle() {
+        return pending.isEmpty() && inFlight.isEmpty();
+    }
+
+    public CompletableFuture<Void> checkpoint() {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        synchronized (checkpoints) {
+            inFlight.forEach(pending::putIfAbsent);
+            Set<UUID> outstanding = ConcurrentHashMap.newKeySet();
+            outstanding.addAll(pending.keySet());
+            if (outstanding.isEmpty()) {
+                done.complete(null);
+                return done;
+            }
+            checkpoints.add(new Checkpoint(batchSeq.get(), outstanding, done));
+        }
+        return done;
+    }
+
+    public int getOpenCheckpoints() {
+        synchronized (checkpoints) {
+            return checkpoints.size();
+        }
+    }
+
+    public void requestFlush() {
+        if (!flushScheduled.compareAndSet(false, true)) return;
+        Bukkit.getScheduler().runTaskLater(plugin, () -> {
+            flushScheduled.set(false);
+            try {
+                plugin.getIoExecutor().execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                plugin.getLogger().warning("Deferred a profile save: " + e.getMessage());
+            }
+        }, coalesceTicks);
+    }
+
+    public void flush() {
+        do {
+            if (!flushing.compareAndSet(false, true)) return;
+            try {
+                List<Map.Entry<UUID, JobProfile>> batch;
+                while (!(batch = takeBatch()).isEmpty()) {
+                    if (!saveBatch(batch)) return;
+                }
+            } finally {
+                flushing.set(false);
+            }
+        } while (!pending.isEmpty());
+    }
+
+    public void shutdown(long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, timeoutMs));
+
+        while (flushing.get() && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(5L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        List<CompletableFuture<Boolean>> saves = new ArrayList<>();
+        List<Map.Entry<UUID, JobProfile>> batch;
+        while (!(batch = takeBatch()).isEmpty()) {
+            List<Map.Entry<UUID, JobProfile>> chunk = batch;
+            saves.add(plugin.getIoExecutor().submit(() -> saveBatch(chunk)));
+        }
+
+        try {
+            long remaining = deadline - System.nanoTime();
+            CompletableFuture.allOf(saves.toArray(new CompletableFuture[0])).get(Math.max(0L, remaining), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            plugin.getLogger().warning("Timed out saving job profiles on shutdown; "
+                    + (inFlight.size() + pending.size()) + " profile(s) may not have been saved.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<Map.Entry<UUID, JobProfile>> takeBatch() {
+        List<Map.Entry<UUID, JobProfile>> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        synchronized (checkpoints) {
+            Iterator<Map.Entry<UUID, JobProfile>> it = pending.entrySet().iterator();
+            while (it.hasNext() && batch.size() < batchSize) {
+                Map.Entry<UUID, JobProfile> e = it.next();
+                UUID uuid = e.getKey();
+                JobProfile profile = e.getValue();
+                if (!pending.remove(uuid, profile)) continue;
+                inFlight.put(uuid, profile);
+                batch.add(Map.entry(uuid, profile));
+            }
+        }
+        return batch;
+    }
+
+    private boolean saveBatch(List<Map.Entry<UUID, JobProfile>> batch) {
+        long seq = batchSeq.incrementAndGet();
+        int size = batch.size();
+        long[] revisions = new long[size];
+        long[][] dirtyJobs = new long[size][];
+        List<ProfileStore.ProfileRecord> records = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            UUID uuid = batch.get(i).getKey();
+            JobProfile profile = batch.get(i).getValue();
+            synchronized (profile) {
+                revisions[i] = profile.getRevision();
+                dirtyJobs[i] = profile.takeDirtyJobs();
+                records.add(new ProfileStore.ProfileRecord(uuid, profile.getJournalSeq(),
+                        ProfileStore.dirtyRows(profile, dirtyJobs[i])));
+            }
+        }
+
+        long start = metrics.startTimer();
+        try {
+            plugin.getProfileStore().saveProfiles(records);
+        } catch (Exception e) {
+            String msg = e.getMessage();
+            if (msg == null || !msg.contains("SQLITE_READONLY_DBMOVED")) e.printStackTrace();
+            for (int i = 0; i < size; i++) {
+                Map.Entry<UUID, JobProfile> entry = batch.get(i);
+                entry.getValue().restoreDirtyJobs(dirtyJobs[i]);
+                pending.putIfAbsent(entry.getKey(), entry.getValue());
+                inFlight.remove(entry.getKey(), entry.getValue());
+            }
+            return false;
+        } finally {
+            metrics.stopTimer(saveTime, start);
+        }
+
+        for (int i = 0; i < size; i++) {
+            UUID uuid = batch.get(i).getKey();
+            JobProfile profile = batch.get(i).getValue();
+            synchronized (profile) {
+                if (profile.getRevision() == revisions[i]) profile.setClean();
+            }
+            inFlight.remove(uuid, profile);
+        }
+        committed(seq, batch);
+
+        BiConsumer<UUID, JobProfile> listener = saveListener;
+        if (listener != null) {
+            for (Map.Entry<UUID, JobProfile> entry : batch) listener.accept(entry.getKey(), entry.getValue());
+        }
+        return true;
+    }
+
+    private void committed(long seq, List<Map.Entry<UUID, JobProfile>> batch) {
+        List<CompletableFuture<Void>> done = null;
+        synchronized (checkpoints) {
+            Iterator<Checkpoint> it = checkpoints.iterator();
+            while (it.hasNext()) {
+                Checkpoint cp = it.next();
+                if (cp.afterBatch() >= seq) continue;
+                for (Map.Entry<UUID, JobProfile> entry : batch) cp.outstanding().remove(entry.getKey());
+                if (!cp.outstanding().isEmpty()) continue;
+                it.remove();
+                if (done == null) done = new ArrayList<>();
+                done.add(cp.done());
+            }
+        }
+        if (done != null) {
+            for (CompletableFuture<Void> future : done) future.complete(null);
+        }
+    }
+}
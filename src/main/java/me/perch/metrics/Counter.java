@@ -0,0 +1,31 @@
+package me.perch.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public final class Counter implements LongSupplier {
+
+    private final MetricsRegistry registry;
+    private final LongAdder adder = new LongAdder();
+
+    Counter(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void increment() {
+        if (registry.isEnabled()) adder.increment();
+    }
+
+    public void add(long amount) {
+        if (registry.isEnabled()) adder.add(amount);
+    }
+
+    public long get() {
+        return adder.sum();
+    }
+
+    @Override
+    public long getAsLong() {
+        return adder.sum();
+    }
+}
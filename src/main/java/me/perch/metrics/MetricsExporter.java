@@ -0,0 +1,78 @@
+package me.perch.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import me.perch.Jobs;
+import org.bukkit.Bukkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+public class MetricsExporter {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Jobs plugin;
+    private final MetricsRegistry registry;
+    private HttpServer server;
+
+    public MetricsExporter(Jobs plugin, MetricsRegistry registry) {
+        this.plugin = plugin;
+        this.registry = registry;
+    }
+
+    public void start() {
+        if (plugin.getConfig().getBoolean("metrics.prometheus.enabled", false)) startHttp();
+        if (plugin.getConfig().getBoolean("metrics.file.enabled", false)) {
+            File file = new File(plugin.getDataFolder(), plugin.getConfig().getString("metrics.file.path", "metrics.prom"));
+            long ticks = Math.max(20L, plugin.getConfig().getLong("metrics.file.interval-ticks", 200L));
+            Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> writeFile(file), ticks, ticks);
+        }
+    }
+
+    private void startHttp() {
+        String bind = plugin.getConfig().getString("metrics.prometheus.bind", "127.0.0.1");
+        int port = plugin.getConfig().getInt("metrics.prometheus.port", 9465);
+        try {
+            server = HttpServer.create(new InetSocketAddress(bind, port), 0);
+            server.createContext("/metrics", exchange -> {
+                try (exchange) {
+                    if (!exchange.getRequestMethod().equals("GET")) {
+                        exchange.sendResponseHeaders(405, -1);
+                        return;
+                    }
+                    byte[] body = registry.toPrometheus().getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                }
+            });
+            server.start();
+            plugin.getLogger().info("Serving Prometheus metrics on http://" + bind + ":" + port + "/metrics");
+        } catch (IOException | IllegalArgumentException e) {
+            plugin.getLogger().warning("Could not start the metrics endpoint on " + bind + ":" + port + ": " + e.getMessage());
+            server = null;
+        }
+    }
+
+    private void writeFile(File file) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            Files.writeString(tmp.toPath(), registry.toPrometheus(), StandardCharsets.UTF_8);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not write metrics to " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    public void stop() {
+        if (server != null) server.stop(0);
+        server = null;
+    }
+}
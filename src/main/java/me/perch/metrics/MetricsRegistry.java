@@ -0,0 +1,173 @@
+package me.perch.metrics;
+
+import me.perch.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+public final class MetricsRegistry {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private enum Type { COUNTER, GAUGE, SUMMARY }
+
+    private record Sample(String labels, Object source) {}
+
+    private static final class Family {
+        final String name;
+        final String help;
+        final Type type;
+        final List<Sample> samples = new ArrayList<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+    private final List<Family> order = new ArrayList<>();
+    private volatile boolean enabled;
+
+    public MetricsRegistry(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long startTimer() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public void stopTimer(LatencyHistogram timer, long start) {
+        if (start != 0L) timer.recordNanos(System.nanoTime() - start);
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        Counter counter = new Counter(this);
+        add(name, help, Type.COUNTER, labels, counter);
+        return counter;
+    }
+
+    public void counter(String name, String help, LongSupplier total, String... labels) {
+        add(name, help, Type.COUNTER, labels, total);
+    }
+
+    public LatencyHistogram timer(String name, String help, String... labels) {
+        return register(name, help, new LatencyHistogram(), labels);
+    }
+
+    public LatencyHistogram register(String name, String help, LatencyHistogram histogram, String... labels) {
+        add(name, help, Type.SUMMARY, labels, histogram);
+        return histogram;
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        add(name, help, Type.GAUGE, labels, value);
+    }
+
+    private synchronized void add(String name, String help, Type type, String[] labels, Object source) {
+        Family family = families.get(name);
+        if (family == null) {
+            family = new Family(name, help, type);
+            families.put(name, family);
+            order.add(family);
+        } else if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as " + family.type);
+        }
+        String rendered = labels(labels);
+        family.samples.removeIf(s -> s.labels().equals(rendered));
+        family.samples.add(new Sample(rendered, source));
+    }
+
+    private static String labels(String[] pairs) {
+        if (pairs.length == 0) return "";
+        if (pairs.length % 2 != 0) throw new IllegalArgumentException("Labels must be key/value pairs");
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(pairs[i]).append("=\"").append(pairs[i + 1].replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String withLabel(String labels, String key, String value) {
+        String extra = key + "=\"" + value + "\"";
+        return labels.isEmpty() ? "{" + extra + "}" : labels.substring(0, labels.length() - 1) + "," + extra + "}";
+    }
+
+    public synchronized String toPrometheus() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Family family : order) {
+            sb.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            sb.append("# TYPE ").append(family.name).append(' ').append(family.type.name().toLowerCase(Locale.ROOT)).append('\n');
+            for (Sample sample : family.samples) {
+                switch (family.type) {
+                    case COUNTER -> line(sb, family.name, sample.labels(), ((LongSupplier) sample.source()).getAsLong());
+                    case GAUGE -> line(sb, family.name, sample.labels(), ((DoubleSupplier) sample.source()).getAsDouble());
+                    case SUMMARY -> {
+                        LatencyHistogram h = (LatencyHistogram) sample.source();
+                        for (double q : QUANTILES) {
+                            line(sb, family.name, withLabel(sample.labels(), "quantile", Double.toString(q)), h.percentileMicros(q) / 1e6);
+                        }
+                        long count = h.getCount();
+                        line(sb, family.name + "_sum", sample.labels(), h.getMeanMicros() * count / 1e6);
+                        line(sb, family.name + "_count", sample.labels(), count);
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void line(StringBuilder sb, String name, String labels, double value) {
+        sb.append(name).append(labels).append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) sb.append((long) value);
+        else sb.append(value);
+        sb.append('\n');
+    }
+
+    public synchronized List<String> summary() {
+        List<String> out = new ArrayList<>();
+        for (Family family : order) {
+            for (Sample sample : family.samples) {
+                String key = family.name.replace("perchjobs_", "") + sample.labels();
+                switch (family.type) {
+                    case COUNTER -> out.add(key + " = " + ((LongSupplier) sample.source()).getAsLong());
+                    case GAUGE -> out.add(key + " = " + format(((DoubleSupplier) sample.source()).getAsDouble()));
+                    case SUMMARY -> {
+                        LatencyHistogram h = (LatencyHistogram) sample.source();
+                        if (h.getCount() == 0L) continue;
+                        out.add(key + " n=" + h.getCount()
+                                + " p50=" + micros(h.percentileMicros(0.5))
+                                + " p99=" + micros(h.percentileMicros(0.99))
+                                + " max=" + micros(h.getMaxMicros()));
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    private static String format(double v) {
+        return v == Math.rint(v) ? Long.toString((long) v) : String.format(Locale.ROOT, "%.3f", v);
+    }
+
+    private static String micros(long us) {
+        if (us >= 1_000_000L) return String.format(Locale.ROOT, "%.2fs", us / 1e6);
+        if (us >= 1_000L) return String.format(Locale.ROOT, "%.2fms", us / 1e3);
+        return us + "us";
+    }
+}
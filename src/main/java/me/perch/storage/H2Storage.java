@@ -0,0 +1,93 @@
+package me.perch.storage;
+
+import com.zaxxer.hikari.HikariConfig;
+import me.perch.metrics.MetricsRegistry;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.logging.Logger;
+
+public class H2Storage extends SqlStorage {
+
+    public H2Storage(ConfigurationSection settings, File dataFolder, MetricsRegistry metrics, Logger logger) {
+        super(settings, dataFolder, metrics, logger);
+    }
+
+    @Override
+    public String getName() {
+        return "H2";
+    }
+
+    @Override
+    protected void configure(HikariConfig config) {
+        String file = settings.getString("storage.h2.file", "jobs");
+        config.setJdbcUrl("jdbc:h2:file:" + new File(dataFolder, file).getAbsolutePath()
+                + ";QUERY_CACHE_SIZE=64;DB_CLOSE_ON_EXIT=FALSE;NON_KEYWORDS=DAY");
+        config.setDriverClassName("org.h2.Driver");
+        config.setMaximumPoolSize(poolSize("h2", 4));
+        config.setMinimumIdle(1);
+    }
+
+    @Override
+    protected void createSchema(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS job_data (" +
+                "uuid VARCHAR(36) PRIMARY KEY, " +
+                "data CLOB, " +
+                "profile BLOB, " +
+                "journal_seq BIGINT DEFAULT 0 NOT NULL)");
+
+        Set<String> columns = columns(conn, "job_data");
+        addMissingColumn(stmt, columns, "job_data", "profile", "BLOB");
+        addMissingColumn(stmt, columns, "job_data", "journal_seq", "BIGINT DEFAULT 0 NOT NULL");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS job_data_quarantine (" +
+                "uuid VARCHAR(36) PRIMARY KEY, " +
+                "data CLOB, " +
+                "profile BLOB)");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS job_levels (" +
+                "uuid VARCHAR(36) NOT NULL, " +
+                "job_id VARCHAR(32) NOT NULL, " +
+                "level INT NOT NULL, " +
+                "xp DOUBLE PRECISION NOT NULL, " +
+                "start_day BIGINT DEFAULT 0 NOT NULL, " +
+                "active BOOLEAN DEFAULT FALSE NOT NULL, " +
+                "PRIMARY KEY (uuid, job_id))");
+
+        Set<String> levelColumns = columns(conn, "job_levels");
+        addMissingColumn(stmt, levelColumns, "job_levels", "start_day", "BIGINT DEFAULT 0 NOT NULL");
+        addMissingColumn(stmt, levelColumns, "job_levels", "active", "BOOLEAN DEFAULT FALSE NOT NULL");
+
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_job_rank ON job_levels(job_id, level DESC, xp DESC)");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS job_xp_daily (" +
+                "uuid VARCHAR(36) NOT NULL, " +
+                "job_id VARCHAR(32) NOT NULL, " +
+                "day BIGINT NOT NULL, " +
+                "xp DOUBLE PRECISION NOT NULL, " +
+                "PRIMARY KEY (uuid, job_id, day))");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_job_xp_day ON job_xp_daily(day)");
+    }
+
+    @Override
+    protected String upsertProfileSql() {
+        return "MERGE INTO job_data (uuid, data, profile, journal_seq) KEY (uuid) VALUES (?, NULL, NULL, ?)";
+    }
+
+    @Override
+    protected String upsertLevelSql() {
+        return "MERGE INTO job_levels (uuid, job_id, level, xp, start_day, active) KEY (uuid, job_id) VALUES (?, ?, ?, ?, ?, ?)";
+    }
+
+    @Override
+    protected String addDailyXpSql() {
+        return "MERGE INTO job_xp_daily t USING (VALUES (CAST(? AS VARCHAR(36)), CAST(? AS VARCHAR(32)), CAST(? AS BIGINT), CAST(? AS DOUBLE PRECISION))) " +
+                "s(uuid, job_id, day, xp) ON t.uuid = s.uuid AND t.job_id = s.job_id AND t.day = s.day " +
+                "WHEN MATCHED THEN UPDATE SET t.xp = t.xp + s.xp " +
+                "WHEN NOT MATCHED THEN INSERT (uuid, job_id, day, xp) VALUES (s.uuid, s.job_id, s.day, s.xp)";
+    }
+}
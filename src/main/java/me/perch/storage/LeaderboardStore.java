@@ -0,0 +1,34 @@
+package me.perch.storage;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+public interface LeaderboardStore {
+
+    record RankEntry(UUID uuid, int level, double xp) {}
+
+    record DailyXp(UUID uuid, String jobId, long day, double xp) {}
+
+    @FunctionalInterface
+    interface LevelVisitor {
+        void accept(UUID uuid, String jobId, int level, double xp);
+    }
+
+    @FunctionalInterface
+    interface DailyXpVisitor {
+        void accept(UUID uuid, String jobId, long day, double xp);
+    }
+
+    int scanLevels(LevelVisitor visitor) throws SQLException;
+
+    int scanDailyXp(long fromDay, DailyXpVisitor visitor) throws SQLException;
+
+    void addDailyXp(List<DailyXp> rows) throws SQLException;
+
+    int pruneDailyXp(long beforeDay) throws SQLException;
+
+    List<RankEntry> top(String jobId, int offset, int limit) throws SQLException;
+
+    int count(String jobId) throws SQLException;
+}
@@ -0,0 +1,119 @@
+package me.perch.storage;
+
+import com.zaxxer.hikari.HikariConfig;
+import me.perch.metrics.MetricsRegistry;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.logging.Logger;
+
+public class MySqlStorage extends SqlStorage {
+
+    public MySqlStorage(ConfigurationSection settings, File dataFolder, MetricsRegistry metrics, Logger logger) {
+        super(settings, dataFolder, metrics, logger);
+    }
+
+    @Override
+    public String getName() {
+        return "MySQL";
+    }
+
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+
+    @Override
+    protected void configure(HikariConfig config) {
+        String url = settings.getString("storage.mysql.url", "jdbc:mysql://localhost:3306/perchjobs");
+        config.setJdbcUrl(url);
+        config.setUsername(settings.getString("storage.mysql.username", "root"));
+        config.setPassword(settings.getString("storage.mysql.password", ""));
+
+        int pool = poolSize("mysql", 10);
+        config.setMaximumPoolSize(pool);
+        config.setMinimumIdle(pool);
+        config.setMaxLifetime(settings.getLong("storage.mysql.max-lifetime-ms", 1800000L));
+        config.setConnectionTimeout(settings.getLong("storage.mysql.connection-timeout-ms", 5000L));
+
+        if (url.startsWith("jdbc:mysql:")) {
+            config.setDriverClassName("com.mysql.cj.jdbc.Driver");
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", "250");
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            config.addDataSourceProperty("useServerPrepStmts", "true");
+            config.addDataSourceProperty("rewriteBatchedStatements", "true");
+            config.addDataSourceProperty("useLocalSessionState", "true");
+        } else if (url.startsWith("jdbc:mariadb:")) {
+            config.setDriverClassName("org.mariadb.jdbc.Driver");
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", "250");
+            config.addDataSourceProperty("useServerPrepStmts", "true");
+            config.addDataSourceProperty("useBulkStmts", "true");
+        } else if (url.startsWith("jdbc:h2:")) {
+            config.setDriverClassName("org.h2.Driver");
+        }
+    }
+
+    @Override
+    protected void createSchema(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS job_data (" +
+                "uuid VARCHAR(36) NOT NULL PRIMARY KEY, " +
+                "data MEDIUMTEXT, " +
+                "profile MEDIUMBLOB, " +
+                "journal_seq BIGINT NOT NULL DEFAULT 0)");
+
+        Set<String> columns = columns(conn, "job_data");
+        addMissingColumn(stmt, columns, "job_data", "profile", "MEDIUMBLOB");
+        addMissingColumn(stmt, columns, "job_data", "journal_seq", "BIGINT NOT NULL DEFAULT 0");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS job_data_quarantine (" +
+                "uuid VARCHAR(36) NOT NULL PRIMARY KEY, " +
+                "data MEDIUMTEXT, " +
+                "profile MEDIUMBLOB)");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS job_levels (" +
+                "uuid VARCHAR(36) NOT NULL, " +
+                "job_id VARCHAR(32) NOT NULL, " +
+                "level INT NOT NULL, " +
+                "xp DOUBLE NOT NULL, " +
+                "start_day BIGINT NOT NULL DEFAULT 0, " +
+                "active BOOLEAN NOT NULL DEFAULT FALSE, " +
+                "PRIMARY KEY (uuid, job_id), " +
+                "INDEX idx_job_rank (job_id, level, xp))");
+
+        Set<String> levelColumns = columns(conn, "job_levels");
+        addMissingColumn(stmt, levelColumns, "job_levels", "start_day", "BIGINT NOT NULL DEFAULT 0");
+        addMissingColumn(stmt, levelColumns, "job_levels", "active", "BOOLEAN NOT NULL DEFAULT FALSE");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS job_xp_daily (" +
+                "uuid VARCHAR(36) NOT NULL, " +
+                "job_id VARCHAR(32) NOT NULL, " +
+                "day BIGINT NOT NULL, " +
+                "xp DOUBLE NOT NULL, " +
+                "PRIMARY KEY (uuid, job_id, day), " +
+                "INDEX idx_job_xp_day (day))");
+    }
+
+    @Override
+    protected String upsertProfileSql() {
+        return "INSERT INTO job_data (uuid, data, profile, journal_seq) VALUES (?, NULL, NULL, ?) " +
+                "ON DUPLICATE KEY UPDATE data=NULL, profile=NULL, journal_seq=VALUES(journal_seq)";
+    }
+
+    @Override
+    protected String upsertLevelSql() {
+        return "INSERT INTO job_levels (uuid, job_id, level, xp, start_day, active) VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE level=VALUES(level), xp=VALUES(xp), start_day=VALUES(start_day), active=VALUES(active)";
+    }
+
+    @Override
+    protected String addDailyXpSql() {
+        return "INSERT INTO job_xp_daily (uuid, job_id, day, xp) VALUES (?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE xp=xp+VALUES(xp)";
+    }
+}
@@ -0,0 +1,47 @@
+package me.perch.storage;
+
+import me.perch.data.JobIndex;
+import me.perch.data.JobProfile;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public interface ProfileStore {
+
+    record JobRow(String jobId, int level, double xp, long startDay, boolean active) {}
+
+    record ProfileRecord(UUID uuid, long journalSeq, List<JobRow> jobs) {}
+
+    Map<UUID, JobProfile> loadProfiles(Collection<UUID> uuids) throws SQLException;
+
+    void saveProfiles(List<ProfileRecord> records) throws SQLException;
+
+    long getMaxJournalSeq() throws SQLException;
+
+    long getJournalSeq(UUID uuid) throws SQLException;
+
+    default boolean isShared() {
+        return false;
+    }
+
+    int migrateLegacyProfiles(int batchSize) throws SQLException;
+
+    static List<JobRow> dirtyRows(JobProfile profile, long[] mask) {
+        List<JobRow> out = new ArrayList<>();
+        for (int w = 0; w < mask.length; w++) {
+            long bits = mask[w];
+            while (bits != 0L) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                String job = JobIndex.name(i);
+                if (job == null) continue;
+                out.add(new JobRow(job, profile.getLevel(i), profile.getXp(i), profile.getJobStartEpochDay(i), profile.isJoined(i)));
+            }
+        }
+        return out;
+    }
+}
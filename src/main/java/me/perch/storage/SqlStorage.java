@@ -0,0 +1,482 @@
+package me.perch.storage;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import me.perch.Jobs;
+import me.perch.data.JobProfile;
+import me.perch.metrics.MetricsRegistry;
+import me.perch.util.LatencyHistogram;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.Closeable;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+public abstract class SqlStorage implements ProfileStore, LeaderboardStore, Closeable {
+
+    protected final ConfigurationSection settings;
+    protected final File dataFolder;
+    protected final Logger logger;
+    private final MetricsRegistry metrics;
+    private final LatencyHistogram connectionWait;
+    private HikariDataSource dataSource;
+
+    protected SqlStorage(ConfigurationSection settings, File dataFolder, MetricsRegistry metrics, Logger logger) {
+        this.settings = settings;
+        this.dataFolder = dataFolder;
+        this.logger = logger;
+        this.metrics = metrics;
+        this.connectionWait = metrics.timer("perchjobs_db_connection_wait_seconds", "Time spent waiting for a pooled database connection");
+    }
+
+    public static SqlStorage create(Jobs plugin) {
+        ConfigurationSection settings = plugin.getConfig();
+        File dataFolder = plugin.getDataFolder();
+        String type = settings.getString("storage.type", "sqlite").toLowerCase(Locale.ROOT);
+        return switch (type) {
+            case "h2" -> new H2Storage(settings, dataFolder, plugin.getMetrics(), plugin.getLogger());
+            case "mysql", "mariadb" -> new MySqlStorage(settings, dataFolder, plugin.getMetrics(), plugin.getLogger());
+            default -> {
+                if (!type.equals("sqlite")) plugin.getLogger().warning("Unknown storage.type '" + type + "', using sqlite.");
+                yield new SqliteStorage(settings, dataFolder, plugin.getMetrics(), plugin.getLogger());
+            }
+        };
+    }
+
+    public abstract String getName();
+
+    protected abstract void configure(HikariConfig config);
+
+    protected abstract void createSchema(Connection conn, Statement stmt) throws SQLException;
+
+    protected abstract String upsertProfileSql();
+
+    protected abstract String upsertLevelSql();
+
+    protected abstract String addDailyXpSql();
+
+    protected int maxBatchSize() {
+        return 1000;
+    }
+
+    protected String lockClause() {
+        return " FOR UPDATE";
+    }
+
+    public void init() throws SQLException {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("PerchJobs-" + getName());
+        configure(config);
+        this.dataSource = new HikariDataSource(config);
+
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement()) {
+            createSchema(conn, stmt);
+        }
+    }
+
+    protected int poolSize(String backend, int def) {
+        return Math.max(1, settings.getInt("storage." + backend + ".pool-size", def));
+    }
+
+    protected static Set<String> columns(Connection conn, String table) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        String name = meta.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT) : table;
+        Set<String> out = new HashSet<>();
+        try (ResultSet rs = meta.getColumns(conn.getCatalog(), conn.getSchema(), name, null)) {
+            while (rs.next()) out.add(rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+        }
+        return out;
+    }
+
+    protected static void addMissingColumn(Statement stmt, Set<String> columns, String table, String column, String definition) throws SQLException {
+        if (!columns.contains(column)) stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+    }
+
+    public Connection getConnection() throws SQLException {
+        long start = metrics.startTimer();
+        try {
+            return dataSource.getConnection();
+        } finally {
+            metrics.stopTimer(connectionWait, start);
+        }
+    }
+
+    public int getPoolSize() {
+        return dataSource == null ? 1 : dataSource.getMaximumPoolSize();
+    }
+
+    public int getActiveConnections() {
+        HikariPoolMXBean pool = dataSource == null ? null : dataSource.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getActiveConnections();
+    }
+
+    public int getIdleConnections() {
+        HikariPoolMXBean pool = dataSource == null ? null : dataSource.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getIdleConnections();
+    }
+
+    public int getThreadsAwaitingConnection() {
+        HikariPoolMXBean pool = dataSource == null ? null : dataSource.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getThreadsAwaitingConnection();
+    }
+
+    @Override
+    public void close() {
+        if (dataSource != null) dataSource.close();
+    }
+
+    @Override
+    public Map<UUID, JobProfile> loadProfiles(Collection<UUID> uuids) throws SQLException {
+        Map<UUID, JobProfile> out = new HashMap<>(uuids.size() * 2);
+        if (uuids.isEmpty()) return out;
+
+        List<UUID> all = new ArrayList<>(uuids);
+        int batch = maxBatchSize();
+        try (Connection conn = getConnection()) {
+            for (int from = 0; from < all.size(); from += batch) {
+                List<UUID> chunk = all.subList(from, Math.min(all.size(), from + batch));
+                String in = placeholders(chunk.size());
+                Set<UUID> legacy = new HashSet<>();
+
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT uuid, profile, data, journal_seq FROM job_data WHERE uuid IN (" + in + ")")) {
+                    bindUuids(ps, chunk);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            UUID uuid = parseUuid(rs.getString("uuid"));
+                            if (uuid == null) continue;
+                            JobProfile profile = readLegacyProfile(rs);
+                            if (profile != null) {
+                                profile.markAllDirty();
+                                legacy.add(uuid);
+                            } else {
+                                profile = new JobProfile();
+                            }
+                            profile.setJournalSeq(rs.getLong("journal_seq"));
+                            out.put(uuid, profile);
+                        }
+                    }
+                }
+
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT uuid, job_id, level, xp, start_day, active FROM job_levels WHERE uuid IN (" + in + ")")) {
+                    bindUuids(ps, chunk);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            UUID uuid = parseUuid(rs.getString("uuid"));
+                            if (uuid == null || legacy.contains(uuid)) continue;
+                            out.computeIfAbsent(uuid, u -> new JobProfile()).restoreJob(rs.getString("job_id"),
+                                    rs.getInt("level"), rs.getDouble("xp"), rs.getBoolean("active"), rs.getLong("start_day"));
+                        }
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) sb.append(i == 0 ? "?" : ",?");
+        return sb.toString();
+    }
+
+    private static void bindUuids(PreparedStatement ps, List<UUID> uuids) throws SQLException {
+        for (int i = 0; i < uuids.size(); i++) ps.setString(i + 1, uuids.get(i).toString());
+    }
+
+    private static UUID parseUuid(String raw) {
+        try {
+            return UUID.fromString(raw);
+        } catch (IllegalArgumentException | NullPointerException ex) {
+            return null;
+        }
+    }
+
+    private static JobProfile readLegacyProfile(ResultSet rs) throws SQLException {
+        byte[] blob = rs.getBytes("profile");
+        if (blob != null) return JobProfile.deserialize(blob);
+        String json = rs.getString("data");
+        if (json != null) return JobProfile.deserializeLegacyJson(json);
+        return null;
+    }
+
+    @Override
+    public void saveProfiles(List<ProfileRecord> records) throws SQLException {
+        if (records.isEmpty()) return;
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement dataPs = conn.prepareStatement(upsertProfileSql());
+                 PreparedStatement levelsPs = conn.prepareStatement(upsertLevelSql())) {
+
+                Map<UUID, Long> stored = storedJournalSeqs(conn, records);
+                boolean anyData = false;
+                boolean anyJobs = false;
+                for (ProfileRecord record : records) {
+                    Long current = stored.get(record.uuid());
+                    if (current != null && current > record.journalSeq()) continue;
+                    String uuid = record.uuid().toString();
+                    dataPs.setString(1, uuid);
+                    dataPs.setLong(2, record.journalSeq());
+                    dataPs.addBatch();
+                    anyData = true;
+
+                    for (JobRow row : record.jobs()) {
+                        bindJobRow(levelsPs, uuid, row);
+                        levelsPs.addBatch();
+                        anyJobs = true;
+                    }
+                }
+
+                if (anyData) dataPs.executeBatch();
+                if (anyJobs) levelsPs.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private Map<UUID, Long> storedJournalSeqs(Connection conn, List<ProfileRecord> records) throws SQLException {
+        Map<UUID, Long> out = new HashMap<>(records.size() * 2);
+        List<UUID> all = new ArrayList<>(records.size());
+        for (ProfileRecord record : records) all.add(record.uuid());
+        int batch = maxBatchSize();
+        for (int from = 0; from < all.size(); from += batch) {
+            List<UUID> chunk = all.subList(from, Math.min(all.size(), from + batch));
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT uuid, journal_seq FROM job_data WHERE uuid IN (" + placeholders(chunk.size()) + ")" + lockClause())) {
+                bindUuids(ps, chunk);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        UUID uuid = parseUuid(rs.getString("uuid"));
+                        if (uuid != null) out.put(uuid, rs.getLong("journal_seq"));
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    private static void bindJobRow(PreparedStatement ps, String uuid, JobRow row) throws SQLException {
+        ps.setString(1, uuid);
+        ps.setString(2, row.jobId());
+        ps.setInt(3, row.level());
+        ps.setDouble(4, row.xp());
+        ps.setLong(5, row.startDay());
+        ps.setBoolean(6, row.active());
+    }
+
+    @Override
+    public int migrateLegacyProfiles(int batchSize) throws SQLException {
+        int migrated = 0;
+        try (Connection conn = getConnection();
+             PreparedStatement select = conn.prepareStatement(
+                     "SELECT uuid, profile, data FROM job_data WHERE profile IS NOT NULL OR data IS NOT NULL LIMIT ?");
+             PreparedStatement claim = conn.prepareStatement(
+                     "UPDATE job_data SET profile=NULL, data=NULL WHERE uuid=? AND (profile IS NOT NULL OR data IS NOT NULL)");
+             PreparedStatement unquarantine = conn.prepareStatement("DELETE FROM job_data_quarantine WHERE uuid=?");
+             PreparedStatement quarantine = conn.prepareStatement(
+                     "INSERT INTO job_data_quarantine (uuid, data, profile) SELECT uuid, data, profile FROM job_data " +
+                             "WHERE uuid=? AND (profile IS NOT NULL OR data IS NOT NULL)");
+             PreparedStatement levelsPs = conn.prepareStatement(upsertLevelSql())) {
+
+            while (true) {
+                Map<String, JobProfile> legacy = new HashMap<>();
+                select.setInt(1, Math.max(1, batchSize));
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        String uuid = rs.getString("uuid");
+                        JobProfile profile;
+                        try {
+                            profile = readLegacyProfile(rs);
+                        } catch (RuntimeException ex) {
+                            logger.warning("Moving unreadable legacy profile for " + uuid + " to job_data_quarantine: " + ex.getMessage());
+                            profile = null;
+                        }
+                        legacy.put(uuid, profile);
+                    }
+                }
+                if (legacy.isEmpty()) return migrated;
+
+                conn.setAutoCommit(false);
+                try {
+                    boolean anyJobs = false;
+                    for (Map.Entry<String, JobProfile> e : legacy.entrySet()) {
+                        JobProfile profile = e.getValue();
+                        if (profile == null) {
+                            unquarantine.setString(1, e.getKey());
+                            unquarantine.executeUpdate();
+                            quarantine.setString(1, e.getKey());
+                            if (quarantine.executeUpdate() == 0) continue;
+                        }
+                        claim.setString(1, e.getKey());
+                        if (claim.executeUpdate() == 0 || profile == null) continue;
+                        profile.markAllDirty();
+                        for (JobRow row : ProfileStore.dirtyRows(profile, profile.takeDirtyJobs())) {
+                            bindJobRow(levelsPs, e.getKey(), row);
+                            levelsPs.addBatch();
+                            anyJobs = true;
+                        }
+                        migrated++;
+                    }
+                    if (anyJobs) levelsPs.executeBatch();
+                    conn.commit();
+                } catch (SQLException ex) {
+                    conn.rollback();
+                    throw ex;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            }
+        }
+    }
+
+    @Override
+    public long getMaxJournalSeq() throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT MAX(journal_seq) FROM job_data");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    @Override
+    public long getJournalSeq(UUID uuid) throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT journal_seq FROM job_data WHERE uuid=?")) {
+            ps.setString(1, uuid.toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        }
+    }
+
+    @Override
+    public int scanLevels(LevelVisitor visitor) throws SQLException {
+        int rows = 0;
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT uuid, job_id, level, xp FROM job_levels")) {
+            ps.setFetchSize(1000);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    UUID uuid;
+                    try {
+                        uuid = UUID.fromString(rs.getString("uuid"));
+                    } catch (IllegalArgumentException ex) {
+                        continue;
+                    }
+                    visitor.accept(uuid, rs.getString("job_id"), rs.getInt("level"), rs.getDouble("xp"));
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public int scanDailyXp(long fromDay, DailyXpVisitor visitor) throws SQLException {
+        int rows = 0;
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT uuid, job_id, day, xp FROM job_xp_daily WHERE day >= ?")) {
+            ps.setLong(1, fromDay);
+            ps.setFetchSize(1000);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    UUID uuid = parseUuid(rs.getString("uuid"));
+                    if (uuid == null) continue;
+                    visitor.accept(uuid, rs.getString("job_id"), rs.getLong("day"), rs.getDouble("xp"));
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public void addDailyXp(List<DailyXp> rows) throws SQLException {
+        if (rows.isEmpty()) return;
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(addDailyXpSql())) {
+                int batched = 0;
+                for (DailyXp row : rows) {
+                    ps.setString(1, row.uuid().toString());
+                    ps.setString(2, row.jobId());
+                    ps.setLong(3, row.day());
+                    ps.setDouble(4, row.xp());
+                    ps.addBatch();
+                    if (++batched % maxBatchSize() == 0) ps.executeBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    @Override
+    public int pruneDailyXp(long beforeDay) throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement("DELETE FROM job_xp_daily WHERE day < ?")) {
+            ps.setLong(1, beforeDay);
+            return ps.executeUpdate();
+        }
+    }
+
+    @Override
+    public List<RankEntry> top(String jobId, int offset, int limit) throws SQLException {
+        List<RankEntry> out = new ArrayList<>(Math.max(0, limit));
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT uuid, level, xp FROM job_levels WHERE job_id=? ORDER BY level DESC, xp DESC LIMIT ? OFFSET ?")) {
+            ps.setString(1, jobId);
+            ps.setInt(2, Math.max(0, limit));
+            ps.setInt(3, Math.max(0, offset));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    try {
+                        out.add(new RankEntry(UUID.fromString(rs.getString("uuid")), rs.getInt("level"), rs.getDouble("xp")));
+                    } catch (IllegalArgumentException ignored) {
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public int count(String jobId) throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM job_levels WHERE job_id=?")) {
+            ps.setString(1, jobId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package me.perch.storage;
+
+import com.zaxxer.hikari.HikariConfig;
+import me.perch.metrics.MetricsRegistry;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.logging.Logger;
+
+public class SqliteStorage extends SqlStorage {
+
+    public SqliteStorage(ConfigurationSection settings, File dataFolder, MetricsRegistry metrics, Logger logger) {
+        super(settings, dataFolder, metrics, logger);
+    }
+
+    @Override
+    public String getName() {
+        return "SQLite";
+    }
+
+    @Override
+    protected void configure(HikariConfig config) {
+        String file = settings.getString("storage.sqlite.file", "jobs.db");
+        config.setJdbcUrl("jdbc:sqlite:" + new File(dataFolder, file).getAbsolutePath());
+        config.setDriverClassName("org.sqlite.JDBC");
+        config.setMaximumPoolSize(poolSize("sqlite", 2));
+        config.setMinimumIdle(1);
+        config.setConnectionInitSql("PRAGMA journal_mode=WAL; PRAGMA synchronous=NORMAL; PRAGMA busy_timeout=5000;");
+    }
+
+    @Override
+    protected int maxBatchSize() {
+        return 900;
+    }
+
+    @Override
+    protected String lockClause() {
+        return "";
+    }
+
+    @Override
+    protected void createSchema(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS job_data (" +
+                "uuid VARCHAR(36) PRIMARY KEY, " +
+                "data TEXT, " +
+                "profile BLOB, " +
+                "journal_seq INTEGER NOT NULL DEFAULT 0)");
+
+        Set<String> columns = new HashSet<>();
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(job_data)")) {
+            while (rs.next()) columns.add(rs.getString("name").toLowerCase(Locale.ROOT));
+        }
+        addMissingColumn(stmt, columns, "job_data", "profile", "BLOB");
+        addMissingColumn(stmt, columns, "job_data", "journal_seq", "INTEGER NOT NULL DEFAULT 0");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS job_data_quarantine (" +
+                "uuid VARCHAR(36) PRIMARY KEY, " +
+                "data TEXT, " +
+                "profile BLOB)");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS job_levels (" +
+                "uuid VARCHAR(36) NOT NULL, " +
+                "job_id VARCHAR(32) NOT NULL, " +
+                "level INT NOT NULL, " +
+                "xp DOUBLE NOT NULL, " +
+                "start_day INTEGER NOT NULL DEFAULT 0, " +
+                "active INTEGER NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (uuid, job_id))");
+
+        Set<String> levelColumns = new HashSet<>();
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(job_levels)")) {
+            while (rs.next()) levelColumns.add(rs.getString("name").toLowerCase(Locale.ROOT));
+        }
+        addMissingColumn(stmt, levelColumns, "job_levels", "start_day", "INTEGER NOT NULL DEFAULT 0");
+        addMissingColumn(stmt, levelColumns, "job_levels", "active", "INTEGER NOT NULL DEFAULT 0");
+
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_job_rank ON job_levels(job_id, level DESC, xp DESC)");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS job_xp_daily (" +
+                "uuid VARCHAR(36) NOT NULL, " +
+                "job_id VARCHAR(32) NOT NULL, " +
+                "day INTEGER NOT NULL, " +
+                "xp DOUBLE NOT NULL, " +
+                "PRIMARY KEY (uuid, job_id, day))");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_job_xp_day ON job_xp_daily(day)");
+    }
+
+    @Override
+    protected String upsertProfileSql() {
+        return "INSERT INTO job_data(uuid, data, profile, journal_seq) VALUES(?, NULL, NULL, ?) " +
+                "ON CONFLICT(uuid) DO UPDATE SET data=NULL, profile=NULL, journal_seq=excluded.journal_seq";
+    }
+
+    @Override
+    protected String upsertLevelSql() {
+        return "INSERT INTO job_levels (uuid, job_id, level, xp, start_day, active) VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT(uuid, job_id) DO UPDATE SET level=excluded.level, xp=excluded.xp, " +
+                "start_day=excluded.start_day, active=excluded.active";
+    }
+
+    @Override
+    protected String addDailyXpSql() {
+        return "INSERT INTO job_xp_daily (uuid, job_id, day, xp) VALUES (?, ?, ?, ?) " +
+                "ON CONFLICT(uuid, job_id, day) DO UPDATE SET xp=job_xp_daily.xp+excluded.xp";
+    }
+}
@@ -0,0 +1,51 @@
+package me.perch.sync;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+public final class LoopbackBus implements MessageBus {
+
+    private static final Map<String, Set<LoopbackBus>> NETWORKS = new ConcurrentHashMap<>();
+    private static final ExecutorService DELIVERY = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "PerchJobs-Loopback");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String network;
+    private volatile Consumer<byte[]> receiver;
+
+    public LoopbackBus(String network) {
+        this.network = network;
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        NETWORKS.computeIfAbsent(network, n -> ConcurrentHashMap.newKeySet()).add(this);
+    }
+
+    @Override
+    public void publish(byte[] message) {
+        Set<LoopbackBus> members = NETWORKS.get(network);
+        if (members == null) return;
+        for (LoopbackBus member : members) {
+            if (member == this) continue;
+            Consumer<byte[]> target = member.receiver;
+            if (target == null) continue;
+            byte[] copy = message.clone();
+            DELIVERY.execute(() -> target.accept(copy));
+        }
+    }
+
+    @Override
+    public void close() {
+        Set<LoopbackBus> members = NETWORKS.get(network);
+        if (members != null) members.remove(this);
+        receiver = null;
+    }
+}
@@ -0,0 +1,13 @@
+package me.perch.sync;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+public interface MessageBus {
+
+    void start(Consumer<byte[]> receiver) throws IOException;
+
+    void publish(byte[] message);
+
+    void close();
+}
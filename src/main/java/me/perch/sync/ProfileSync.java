@@ -0,0 +1,264 @@
+package me.perch.sync;
+
+import me.perch.Jobs;
+import me.perch.data.JobProfile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+public class ProfileSync {
+
+    private static final byte OWN = 1;
+    private static final byte RELEASE = 2;
+    private static final byte CLAIM = 3;
+    private static final byte HANDOFF = 4;
+    private static final byte WHO_OWNS = 5;
+    private static final UUID EVERYONE = new UUID(0L, 0L);
+
+    public interface Host {
+        JobProfile detach(UUID uuid);
+
+        void evictOffline(UUID uuid);
+
+        void observeJournalSeq(long seq);
+    }
+
+    private final Host jobs;
+    private final Logger logger;
+    private final MessageBus bus;
+    private final String serverId;
+    private final long handoffTimeoutMs;
+    private final Map<UUID, String> owners = new ConcurrentHashMap<>();
+    private final Map<UUID, CompletableFuture<JobProfile>> waiting = new ConcurrentHashMap<>();
+    private final Set<UUID> awaitingRelease = ConcurrentHashMap.newKeySet();
+
+    public ProfileSync(Host jobs, MessageBus bus, String serverId, long handoffTimeoutMs, Logger logger) {
+        this.jobs = jobs;
+        this.logger = logger;
+        this.bus = bus;
+        this.serverId = serverId;
+        this.handoffTimeoutMs = Math.max(0L, handoffTimeoutMs);
+    }
+
+    public static ProfileSync create(Jobs plugin, Host jobs) {
+        if (!plugin.getConfig().getBoolean("sync.enabled", false)) return null;
+
+        String serverId = plugin.getConfig().getString("sync.server-id", "");
+        if (serverId == null || serverId.isBlank()) serverId = "server-" + plugin.getServer().getPort();
+
+        String type = plugin.getConfig().getString("sync.bus", "socket").toLowerCase(Locale.ROOT);
+        MessageBus bus;
+        if (type.equals("loopback")) {
+            bus = new LoopbackBus(plugin.getConfig().getString("sync.loopback.network", "default"));
+        } else {
+            if (!type.equals("socket")) plugin.getLogger().warning("Unknown sync.bus '" + type + "', using socket.");
+            try {
+                int port = plugin.getConfig().getInt("sync.socket.port", 25700);
+                List<InetSocketAddress> peers = new ArrayList<>();
+                for (String peer : plugin.getConfig().getStringList("sync.socket.peers")) {
+                    peers.add(SocketBus.address(peer, port));
+                }
+                String secret = plugin.getConfig().getString("sync.socket.secret", "");
+                if (secret == null || secret.isEmpty()) {
+                    plugin.getLogger().warning("sync.socket.secret is empty, profile sync disabled; set a shared secret on every server.");
+                    return null;
+                }
+                bus = new SocketBus(SocketBus.address(plugin.getConfig().getString("sync.socket.bind", "127.0.0.1"), port),
+                        peers, secret.getBytes(StandardCharsets.UTF_8), plugin.getLogger());
+            } catch (IllegalArgumentException ex) {
+                plugin.getLogger().warning("Invalid sync.socket settings, profile sync disabled: " + ex.getMessage());
+                return null;
+            }
+        }
+
+        ProfileSync sync = new ProfileSync(jobs, bus, serverId,
+                plugin.getConfig().getLong("sync.handoff-timeout-ms", 1500L), plugin.getLogger());
+        try {
+            sync.start();
+        } catch (IOException ex) {
+            plugin.getLogger().warning("Could not start the profile sync bus, profile sync disabled: " + ex.getMessage());
+            bus.close();
+            return null;
+        }
+        plugin.getLogger().info("Profile sync enabled as '" + serverId + "' over " + type + ".");
+        return sync;
+    }
+
+    public void start() throws IOException {
+        bus.start(this::receive);
+        bus.publish(message(WHO_OWNS, EVERYONE, 0L));
+    }
+
+    public JobProfile acquire(UUID uuid) {
+        String owner = owners.get(uuid);
+        if (owner == null || owner.equals(serverId)) return null;
+
+        CompletableFuture<JobProfile> future = new CompletableFuture<>();
+        waiting.put(uuid, future);
+        try {
+            bus.publish(message(CLAIM, uuid, 0L));
+            return future.get(handoffTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            owners.remove(uuid, owner);
+            logger.warning("No profile handoff from " + owner + " for " + uuid + " within " + handoffTimeoutMs + "ms; loading from storage.");
+        } catch (ExecutionException ex) {
+            ex.printStackTrace();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waiting.remove(uuid, future);
+        }
+        return null;
+    }
+
+    public void announceOwner(UUID uuid, JobProfile profile) {
+        awaitingRelease.remove(uuid);
+        owners.put(uuid, serverId);
+        bus.publish(message(OWN, uuid, profile.getJournalSeq()));
+    }
+
+    public void onQuit(UUID uuid, JobProfile profile, boolean saving) {
+        if (saving) awaitingRelease.add(uuid);
+        else release(uuid, profile);
+    }
+
+    public void onSaved(UUID uuid, JobProfile profile) {
+        if (awaitingRelease.remove(uuid)) release(uuid, profile);
+    }
+
+    public void releaseAll(Map<UUID, JobProfile> profiles) {
+        profiles.forEach(this::release);
+    }
+
+    private void release(UUID uuid, JobProfile profile) {
+        owners.remove(uuid, serverId);
+        bus.publish(message(RELEASE, uuid, profile == null ? 0L : profile.getJournalSeq()));
+    }
+
+    private void handoff(UUID uuid, JobProfile profile, String to) {
+        byte[] data;
+        long seq;
+        synchronized (profile) {
+            data = profile.serialize();
+            seq = profile.getJournalSeq();
+        }
+        owners.remove(uuid, serverId);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length + 64);
+            DataOutputStream out = header(bytes, HANDOFF, uuid, seq);
+            out.writeUTF(to);
+            out.writeInt(data.length);
+            out.write(data);
+            bus.publish(bytes.toByteArray());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void receive(byte[] message) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(message));
+            byte type = in.readByte();
+            String from = in.readUTF();
+            UUID uuid = new UUID(in.readLong(), in.readLong());
+            long seq = in.readLong();
+            if (from.equals(serverId)) return;
+            jobs.observeJournalSeq(seq);
+
+            switch (type) {
+                case OWN -> {
+                    owners.put(uuid, from);
+                    jobs.evictOffline(uuid);
+                }
+                case RELEASE -> {
+                    owners.remove(uuid, from);
+                    CompletableFuture<JobProfile> future = waiting.get(uuid);
+                    if (future != null) future.complete(null);
+                }
+                case CLAIM -> onClaim(uuid, from);
+                case WHO_OWNS -> owners.forEach((owned, owner) -> {
+                    if (owner.equals(serverId)) bus.publish(message(OWN, owned, 0L));
+                });
+                case HANDOFF -> {
+                    if (!in.readUTF().equals(serverId)) {
+                        jobs.evictOffline(uuid);
+                        return;
+                    }
+                    byte[] data = new byte[in.readInt()];
+                    in.readFully(data);
+                    JobProfile profile = JobProfile.deserialize(data);
+                    profile.setJournalSeq(seq);
+                    profile.markAllDirty();
+                    owners.remove(uuid, from);
+                    CompletableFuture<JobProfile> future = waiting.get(uuid);
+                    if (future == null || !future.complete(profile)) {
+                        logger.warning("Late profile handoff from " + from + " for " + uuid + " was ignored.");
+                    }
+                }
+                default -> logger.warning("Unknown sync message type " + type + " from " + from + ".");
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.warning("Dropping malformed sync message: " + ex);
+        }
+    }
+
+    private void onClaim(UUID uuid, String from) {
+        boolean saving = awaitingRelease.remove(uuid);
+        JobProfile local = jobs.detach(uuid);
+        if (local != null) {
+            handoff(uuid, local, from);
+        } else if (saving || serverId.equals(owners.get(uuid))) {
+            release(uuid, null);
+        }
+    }
+
+    private byte[] message(byte type, UUID uuid, long seq) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            header(bytes, type, uuid, seq).flush();
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private DataOutputStream header(ByteArrayOutputStream bytes, byte type, UUID uuid, long seq) throws IOException {
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        out.writeUTF(serverId);
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+        out.writeLong(seq);
+        return out;
+    }
+
+    public String getServerId() {
+        return serverId;
+    }
+
+    public int getKnownOwners() {
+        return owners.size();
+    }
+
+    public void close() {
+        bus.close();
+    }
+}
@@ -0,0 +1,236 @@
+package me.perch.sync;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+public final class SocketBus implements MessageBus {
+
+    private static final int MAX_FRAME = 1 << 20;
+    private static final int CONNECT_TIMEOUT_MS = 1000;
+    private static final long RETRY_DELAY_MS = 2000L;
+    private static final long MAX_SKEW_MS = 30_000L;
+    private static final int MAX_CONNECTIONS = 16;
+
+    private final InetSocketAddress bind;
+    private final List<InetSocketAddress> peers;
+    private final byte[] secret;
+    private final Logger logger;
+    private final Map<InetSocketAddress, Link> links = new HashMap<>();
+    private final Set<Socket> accepted = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Long> seenNonces = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "PerchJobs-Sync-Send");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile boolean closed;
+    private volatile Consumer<byte[]> receiver;
+    private volatile long lastPrune;
+    private ServerSocket server;
+    private Mac sendMac;
+
+    private static final class Link {
+        Socket socket;
+        DataOutputStream out;
+        long retryAt;
+    }
+
+    public SocketBus(InetSocketAddress bind, List<InetSocketAddress> peers, byte[] secret, Logger logger) {
+        if (secret.length == 0) throw new IllegalArgumentException("a shared secret is required");
+        this.bind = bind;
+        this.peers = List.copyOf(peers);
+        this.secret = secret;
+        this.logger = logger;
+    }
+
+    public static InetSocketAddress address(String raw, int defaultPort) {
+        String s = raw.trim();
+        int colon = s.lastIndexOf(':');
+        if (colon < 0 || s.endsWith("]")) return new InetSocketAddress(s, defaultPort);
+        String host = s.substring(0, colon);
+        if (host.startsWith("[") && host.endsWith("]")) host = host.substring(1, host.length() - 1);
+        return new InetSocketAddress(host, Integer.parseInt(s.substring(colon + 1)));
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) throws IOException {
+        this.receiver = receiver;
+        server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.bind(bind);
+
+        Thread acceptor = new Thread(this::acceptLoop, "PerchJobs-Sync-Accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                if (accepted.size() >= MAX_CONNECTIONS) {
+                    logger.warning("Refusing sync connection from " + socket.getRemoteSocketAddress() + "; " + MAX_CONNECTIONS + " already open.");
+                    closeQuietly(socket);
+                    continue;
+                }
+                socket.setTcpNoDelay(true);
+                accepted.add(socket);
+                Thread reader = new Thread(() -> readLoop(socket), "PerchJobs-Sync-Read");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (!closed) logger.warning("Sync bus stopped accepting connections: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void readLoop(Socket socket) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            Mac mac = mac();
+            byte[] tag = new byte[mac.getMacLength()];
+            while (!closed) {
+                int length = in.readInt();
+                if (length < 0 || length > MAX_FRAME) throw new IOException("Frame of " + length + " bytes from " + socket.getRemoteSocketAddress());
+                long sentAt = in.readLong();
+                long nonce = in.readLong();
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                in.readFully(tag);
+                if (!MessageDigest.isEqual(tag, sign(mac, sentAt, nonce, payload))) {
+                    throw new IOException("Bad signature from " + socket.getRemoteSocketAddress());
+                }
+                if (!fresh(sentAt, nonce)) {
+                    logger.warning("Dropping stale or replayed sync frame from " + socket.getRemoteSocketAddress());
+                    continue;
+                }
+                Consumer<byte[]> target = receiver;
+                if (target != null) target.accept(payload);
+            }
+        } catch (IOException e) {
+            if (!closed && !(e instanceof EOFException)) logger.warning("Sync bus connection dropped: " + e.getMessage());
+        } finally {
+            accepted.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private boolean fresh(long sentAt, long nonce) {
+        long now = System.currentTimeMillis();
+        if (Math.abs(now - sentAt) > MAX_SKEW_MS) return false;
+        if (now - lastPrune > MAX_SKEW_MS) {
+            lastPrune = now;
+            seenNonces.values().removeIf(t -> t < now - MAX_SKEW_MS);
+        }
+        return seenNonces.putIfAbsent(nonce, sentAt) == null;
+    }
+
+    private static byte[] sign(Mac mac, long sentAt, long nonce, byte[] payload) {
+        for (int shift = 56; shift >= 0; shift -= 8) mac.update((byte) (sentAt >>> shift));
+        for (int shift = 56; shift >= 0; shift -= 8) mac.update((byte) (nonce >>> shift));
+        return mac.doFinal(payload);
+    }
+
+    @Override
+    public void publish(byte[] message) {
+        if (closed) return;
+        if (message.length > MAX_FRAME) throw new IllegalArgumentException("Message too large: " + message.length);
+        try {
+            sender.execute(() -> {
+                for (InetSocketAddress peer : peers) send(peer, message);
+            });
+        } catch (RuntimeException ignored) {
+        }
+    }
+
+    private void send(InetSocketAddress peer, byte[] message) {
+        Link link = links.computeIfAbsent(peer, p -> new Link());
+        long now = System.currentTimeMillis();
+        try {
+            if (link.out == null) {
+                if (now < link.retryAt) return;
+                Socket socket = new Socket();
+                socket.setTcpNoDelay(true);
+                socket.connect(peer, CONNECT_TIMEOUT_MS);
+                link.socket = socket;
+                link.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            }
+            if (sendMac == null) sendMac = mac();
+            long sentAt = System.currentTimeMillis();
+            long nonce = random.nextLong();
+            link.out.writeInt(message.length);
+            link.out.writeLong(sentAt);
+            link.out.writeLong(nonce);
+            link.out.write(message);
+            link.out.write(sign(sendMac, sentAt, nonce, message));
+            link.out.flush();
+        } catch (IOException e) {
+            if (link.socket != null) logger.warning("Sync peer " + peer + " unreachable: " + e.getMessage());
+            closeQuietly(link.socket);
+            link.socket = null;
+            link.out = null;
+            link.retryAt = now + RETRY_DELAY_MS;
+        }
+    }
+
+    private Mac mac() throws IOException {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        sender.shutdown();
+        try {
+            sender.awaitTermination(1L, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Link link : links.values()) closeQuietly(link.socket);
+        for (Socket socket : accepted) closeQuietly(socket);
+        if (server != null) {
+            try {
+                server.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        if (socket == null) return;
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package me.perch.util;
+
+import org.bukkit.Material;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ActionQueue {
+
+    private static final Material[] MATERIALS = Material.values();
+
+    private final int capacity;
+    private final int mask;
+
+    private final long[] uuidMost;
+    private final long[] uuidLeast;
+    private final int[] jobIndices;
+    private final int[] materials;
+    private final double[] amounts;
+    private final AtomicLongArray published;
+
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head = 0L;
+
+    private final LongAdder offered = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicLong peakDepth = new AtomicLong();
+
+    public ActionQueue(int requestedCapacity) {
+        int cap = Integer.highestOneBit(Math.max(64, requestedCapacity - 1)) << 1;
+        this.capacity = cap;
+        this.mask = cap - 1;
+        this.uuidMost = new long[cap];
+        this.uuidLeast = new long[cap];
+        this.jobIndices = new int[cap];
+        this.materials = new int[cap];
+        this.amounts = new double[cap];
+        this.published = new AtomicLongArray(cap);
+    }
+
+    public boolean offer(UUID uuid, int jobIndex, Material mat, double amount) {
+        long t;
+        do {
+            t = tail.get();
+            if (t - head >= capacity) {
+                rejected.increment();
+                return false;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+
+        int i = (int) (t & mask);
+        uuidMost[i] = uuid.getMostSignificantBits();
+        uuidLeast[i] = uuid.getLeastSignificantBits();
+        jobIndices[i] = jobIndex;
+        materials[i] = mat.ordinal();
+        amounts[i] = amount;
+        published.lazySet(i, t + 1);
+
+        offered.increment();
+        long depth = t + 1 - head;
+        long peak = peakDepth.get();
+        if (depth > peak) peakDepth.compareAndSet(peak, depth);
+        return true;
+    }
+
+    public int drainTo(Batch batch) {
+        long h = head;
+        int n = 0;
+        int max = batch.capacity();
+
+        while (n < max) {
+            int i = (int) (h & mask);
+            if (published.get(i) != h + 1) break;
+            batch.most[n] = uuidMost[i];
+            batch.least[n] = uuidLeast[i];
+            batch.jobIndices[n] = jobIndices[i];
+            batch.materials[n] = materials[i];
+            batch.amounts[n] = amounts[i];
+            n++;
+            h++;
+        }
+
+        head = h;
+        batch.size = n;
+        return n;
+    }
+
+    public int size() {
+        return (int) Math.max(0L, tail.get() - head);
+    }
+
+    public int capacity() { return capacity; }
+    public long getOfferedCount() { return offered.sum(); }
+    public long getRejectedCount() { return rejected.sum(); }
+    public long getPeakDepth() { return peakDepth.get(); }
+
+    public static final class Batch {
+        private final long[] most;
+        private final long[] least;
+        private final int[] jobIndices;
+        private final int[] materials;
+        private final double[] amounts;
+        private final int[] next;
+        private int size;
+
+        private final int[] groupHeads;
+        private final int[] groupTails;
+        private int groupCount;
+
+        private final int[] table;
+        private final int[] tableStamp;
+        private final int tableMask;
+        private int stamp;
+
+        public Batch(int capacity) {
+            int cap = Math.max(1, capacity);
+            this.most = new long[cap];
+            this.least = new long[cap];
+            this.jobIndices = new int[cap];
+            this.materials = new int[cap];
+            this.amounts = new double[cap];
+            this.next = new int[cap];
+            this.groupHeads = new int[cap];
+            this.groupTails = new int[cap];
+
+            int tableSize = Integer.highestOneBit(Math.max(2, cap * 2 - 1)) << 1;
+            this.table = new int[tableSize];
+            this.tableStamp = new int[tableSize];
+            this.tableMask = tableSize - 1;
+        }
+
+        public int capacity() { return most.length; }
+        public int size() { return size; }
+
+        public void group() {
+            if (++stamp == 0) {
+                Arrays.fill(tableStamp, 0);
+                stamp = 1;
+            }
+            groupCount = 0;
+
+            for (int i = 0; i < size; i++) {
+                next[i] = -1;
+                int h = mix(most[i], least[i]) & tableMask;
+                while (true) {
+                    if (tableStamp[h] != stamp) {
+                        tableStamp[h] = stamp;
+                        table[h] = groupCount;
+                        groupHeads[groupCount] = i;
+                        groupTails[groupCount] = i;
+                        groupCount++;
+                        break;
+                    }
+                    int g = table[h];
+                    int first = groupHeads[g];
+                    if (most[first] == most[i] && least[first] == least[i]) {
+                        next[groupTails[g]] = i;
+                        groupTails[g] = i;
+                        break;
+                    }
+                    h = (h + 1) & tableMask;
+                }
+            }
+        }
+
+        public void clear() {
+            size = 0;
+            groupCount = 0;
+        }
+
+        public int groupCount() { return groupCount; }
+        public int groupHead(int group) { return groupHeads[group]; }
+        public int next(int index) { return next[index]; }
+
+        public UUID uuid(int index) { return new UUID(most[index], least[index]); }
+        public int jobIndex(int index) { return jobIndices[index]; }
+        public Material material(int index) { return MATERIALS[materials[index]]; }
+        public double amount(int index) { return amounts[index]; }
+
+        private static int mix(long most, long least) {
+            long h = (most ^ least) * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
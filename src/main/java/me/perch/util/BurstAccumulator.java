@@ -0,0 +1,62 @@
+package me.perch.util;
+
+import org.bukkit.Material;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class BurstAccumulator {
+
+    @FunctionalInterface
+    public interface Sink {
+        void accept(UUID uuid, int jobIndex, Material material, double amount, int events);
+    }
+
+    private record Key(UUID uuid, int jobIndex, Material material) {}
+
+    private static final class Burst {
+        double amount;
+        double weight = 1.0;
+        int events;
+    }
+
+    private Map<Key, Burst> pending = new LinkedHashMap<>();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder bursts = new LongAdder();
+
+    public boolean add(UUID uuid, int jobIndex, Material material, double amount, double decay) {
+        boolean first = pending.isEmpty();
+        Burst burst = pending.computeIfAbsent(new Key(uuid, jobIndex, material), k -> new Burst());
+        burst.amount += amount * burst.weight;
+        burst.weight *= decay;
+        burst.events++;
+        events.increment();
+        return first;
+    }
+
+    public void drain(Sink sink) {
+        if (pending.isEmpty()) return;
+        Map<Key, Burst> batch = pending;
+        pending = new LinkedHashMap<>();
+        for (Map.Entry<Key, Burst> e : batch.entrySet()) {
+            Key key = e.getKey();
+            Burst burst = e.getValue();
+            bursts.increment();
+            sink.accept(key.uuid(), key.jobIndex(), key.material(), burst.amount, burst.events);
+        }
+    }
+
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    public long getEvents() {
+        return events.sum();
+    }
+
+    public long getBursts() {
+        return bursts.sum();
+    }
+}
@@ -0,0 +1,255 @@
+package me.perch.util;
+
+import me.perch.Jobs;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldSaveEvent;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ChunkPlacedStore implements Listener {
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte SECTION_DENSE = 0;
+    private static final byte SECTION_SPARSE = 1;
+    private static final int SPARSE_LIMIT = 256;
+
+    private final Jobs plugin;
+    private final NamespacedKey key;
+    private final Map<UUID, Map<Long, ChunkBits>> worlds = new ConcurrentHashMap<>();
+
+    public ChunkPlacedStore(Jobs plugin) {
+        this.plugin = plugin;
+        this.key = new NamespacedKey(plugin, "placed_blocks");
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+    }
+
+    public void mark(Block block) {
+        ChunkBits bits = bits(block.getChunk(), true);
+        if (bits.set(block.getX() & 15, block.getY(), block.getZ() & 15)) bits.dirty = true;
+    }
+
+    public boolean isPlaced(Block block) {
+        ChunkBits bits = bits(block.getChunk(), false);
+        return bits != null && bits.get(block.getX() & 15, block.getY(), block.getZ() & 15);
+    }
+
+    public boolean remove(Block block) {
+        ChunkBits bits = bits(block.getChunk(), false);
+        if (bits == null) return false;
+        boolean was = bits.clear(block.getX() & 15, block.getY(), block.getZ() & 15);
+        if (was) bits.dirty = true;
+        return was;
+    }
+
+    public int loadedChunkCount() {
+        int total = 0;
+        for (Map<Long, ChunkBits> chunks : worlds.values()) total += chunks.size();
+        return total;
+    }
+
+    public void saveAll() {
+        for (World world : Bukkit.getWorlds()) saveWorld(world);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent e) {
+        Map<Long, ChunkBits> chunks = worlds.get(e.getWorld().getUID());
+        if (chunks == null) return;
+        Chunk chunk = e.getChunk();
+        ChunkBits bits = chunks.remove(chunkKey(chunk.getX(), chunk.getZ()));
+        if (bits != null && bits.dirty) write(chunk, bits);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldSave(WorldSaveEvent e) {
+        saveWorld(e.getWorld());
+    }
+
+    private void saveWorld(World world) {
+        Map<Long, ChunkBits> chunks = worlds.get(world.getUID());
+        if (chunks == null) return;
+        for (Chunk chunk : world.getLoadedChunks()) {
+            ChunkBits bits = chunks.get(chunkKey(chunk.getX(), chunk.getZ()));
+            if (bits != null && bits.dirty) write(chunk, bits);
+        }
+    }
+
+    private ChunkBits bits(Chunk chunk, boolean create) {
+        World world = chunk.getWorld();
+        Map<Long, ChunkBits> chunks = worlds.computeIfAbsent(world.getUID(), u -> new ConcurrentHashMap<>());
+        long ck = chunkKey(chunk.getX(), chunk.getZ());
+
+        ChunkBits bits = chunks.get(ck);
+        if (bits == null) {
+            bits = read(chunk, world.getMinHeight() >> 4, (world.getMaxHeight() - 1) >> 4);
+            chunks.put(ck, bits);
+        }
+        if (!create && bits.isEmpty()) return null;
+        return bits;
+    }
+
+    private ChunkBits read(Chunk chunk, int minSection, int maxSection) {
+        ChunkBits bits = new ChunkBits(minSection, maxSection);
+        byte[] data = chunk.getPersistentDataContainer().get(key, PersistentDataType.BYTE_ARRAY);
+        if (data == null || data.length == 0) return bits;
+
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(data);
+            if (buf.get() != FORMAT_VERSION) return bits;
+            int sections = buf.get() & 0xFF;
+            for (int s = 0; s < sections; s++) {
+                int sectionY = buf.get();
+                byte mode = buf.get();
+                long[] words = bits.section(sectionY, true);
+                if (mode == SECTION_DENSE) {
+                    for (int w = 0; w < 64; w++) {
+                        long v = buf.getLong();
+                        if (words != null) words[w] = v;
+                    }
+                } else {
+                    int count = buf.getShort() & 0xFFFF;
+                    for (int n = 0; n < count; n++) {
+                        int idx = buf.getShort() & 0x0FFF;
+                        if (words != null) words[idx >>> 6] |= 1L << idx;
+                    }
+                }
+            }
+        } catch (RuntimeException ex) {
+            plugin.getLogger().warning("Discarding corrupt placed-block data in chunk " + chunk.getX() + "," + chunk.getZ());
+            return new ChunkBits(minSection, maxSection);
+        }
+        return bits;
+    }
+
+    private void write(Chunk chunk, ChunkBits bits) {
+        PersistentDataContainer pdc = chunk.getPersistentDataContainer();
+        byte[] data = bits.encode();
+        if (data == null) pdc.remove(key);
+        else pdc.set(key, PersistentDataType.BYTE_ARRAY, data);
+        bits.dirty = false;
+    }
+
+    private static long chunkKey(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    private static final class ChunkBits {
+        private final int minSection;
+        private final long[][] sections;
+        private volatile boolean dirty;
+
+        ChunkBits(int minSection, int maxSection) {
+            this.minSection = minSection;
+            this.sections = new long[Math.max(1, maxSection - minSection + 1)][];
+        }
+
+        long[] section(int sectionY, boolean create) {
+            int i = sectionY - minSection;
+            if (i < 0 || i >= sections.length) return null;
+            long[] words = sections[i];
+            if (words == null && create) {
+                words = new long[64];
+                sections[i] = words;
+            }
+            return words;
+        }
+
+        boolean isEmpty() {
+            for (long[] words : sections) {
+                if (words != null) return false;
+            }
+            return true;
+        }
+
+        synchronized boolean set(int x, int y, int z) {
+            long[] words = section(y >> 4, true);
+            if (words == null) return false;
+            int idx = index(x, y, z);
+            long bit = 1L << idx;
+            if ((words[idx >>> 6] & bit) != 0) return false;
+            words[idx >>> 6] |= bit;
+            return true;
+        }
+
+        synchronized boolean get(int x, int y, int z) {
+            long[] words = section(y >> 4, false);
+            if (words == null) return false;
+            int idx = index(x, y, z);
+            return (words[idx >>> 6] & (1L << idx)) != 0;
+        }
+
+        synchronized boolean clear(int x, int y, int z) {
+            int sectionY = y >> 4;
+            long[] words = section(sectionY, false);
+            if (words == null) return false;
+            int idx = index(x, y, z);
+            long bit = 1L << idx;
+            if ((words[idx >>> 6] & bit) == 0) return false;
+            words[idx >>> 6] &= ~bit;
+
+            for (long w : words) {
+                if (w != 0L) return true;
+            }
+            sections[sectionY - minSection] = null;
+            return true;
+        }
+
+        synchronized byte[] encode() {
+            int count = 0;
+            int size = 2;
+            for (long[] words : sections) {
+                if (words == null) continue;
+                int bitsSet = 0;
+                for (long w : words) bitsSet += Long.bitCount(w);
+                count++;
+                size += 2 + (bitsSet <= SPARSE_LIMIT ? 2 + bitsSet * 2 : 64 * 8);
+            }
+            if (count == 0) return null;
+
+            ByteBuffer buf = ByteBuffer.allocate(size);
+            buf.put(FORMAT_VERSION);
+            buf.put((byte) count);
+            for (int i = 0; i < sections.length; i++) {
+                long[] words = sections[i];
+                if (words == null) continue;
+                int bitsSet = 0;
+                for (long w : words) bitsSet += Long.bitCount(w);
+
+                buf.put((byte) (i + minSection));
+                if (bitsSet <= SPARSE_LIMIT) {
+                    buf.put(SECTION_SPARSE);
+                    buf.putShort((short) bitsSet);
+                    for (int w = 0; w < 64; w++) {
+                        long v = words[w];
+                        while (v != 0L) {
+                            int b = Long.numberOfTrailingZeros(v);
+                            buf.putShort((short) ((w << 6) | b));
+                            v &= v - 1;
+                        }
+                    }
+                } else {
+                    buf.put(SECTION_DENSE);
+                    for (long w : words) buf.putLong(w);
+                }
+            }
+            return buf.array();
+        }
+
+        private static int index(int x, int y, int z) {
+            return ((y & 15) << 8) | (z << 4) | x;
+        }
+    }
+}
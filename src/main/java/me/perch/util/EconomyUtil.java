@@ -6,26 +6,50 @@ import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.plugin.RegisteredServiceProvider;
 
-import java.util.Iterator;
-import java.util.Map;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 public class EconomyUtil {
+
+    private static final long IDLE_EVICT_MS = 60_000L;
+
     private final Jobs plugin;
     private final Economy economy;
     private final boolean enabled;
-
-    private final ConcurrentHashMap<UUID, LongAdder> pendingCents = new ConcurrentHashMap<>();
+    private final boolean asyncFlush;
+    private final long budgetNanos;
+    private final int intervalTicks;
+    private volatile int ticksUntilRound;
+    private volatile boolean backlog;
+
+    private final ConcurrentHashMap<UUID, Pending> pending = new ConcurrentHashMap<>();
+    private final Queue<Pending> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    private final AtomicLong pendingCents = new AtomicLong();
+    private final AtomicLong depositedCents = new AtomicLong();
+    private final AtomicLong depositCalls = new AtomicLong();
+    private final AtomicLong overBudgetTicks = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
 
     public EconomyUtil(Jobs plugin) {
         this.plugin = plugin;
+        this.budgetNanos = Math.max(10_000L, plugin.getConfig().getLong("economy.flush-budget-ns", 500_000L));
+        this.intervalTicks = Math.max(1, plugin.getConfig().getInt("economy.flush-interval-ticks", 20));
 
         if (Bukkit.getPluginManager().getPlugin("Vault") == null) {
             plugin.getLogger().warning("Vault not found! Money disabled.");
             this.economy = null;
             this.enabled = false;
+            this.asyncFlush = false;
             return;
         }
 
@@ -34,14 +58,27 @@ public class EconomyUtil {
             plugin.getLogger().warning("No Economy Provider found! Money disabled.");
             this.economy = null;
             this.enabled = false;
+            this.asyncFlush = false;
             return;
         }
 
         this.economy = rsp.getProvider();
         this.enabled = this.economy != null;
 
+        Set<String> asyncProviders = plugin.getConfig().getStringList("economy.async-providers").stream()
+                .map(s -> s.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        this.asyncFlush = enabled && (asyncProviders.contains(rsp.getPlugin().getName().toLowerCase(Locale.ROOT))
+                || asyncProviders.contains(economy.getName().toLowerCase(Locale.ROOT)));
+
         if (enabled) {
-            Bukkit.getScheduler().runTaskTimer(plugin, () -> flush(500), 20L, 20L);
+            if (asyncFlush) {
+                plugin.getLogger().info("Flushing deposits to " + economy.getName() + " off the main thread.");
+                Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::tick, 1L, 1L);
+            } else {
+                Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+            }
+            Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::evictIdle, 1200L, 1200L);
         }
     }
 
@@ -51,7 +88,11 @@ public class EconomyUtil {
         long cents = Math.round(amount * 100.0);
         if (cents <= 0) return;
 
-        pendingCents.computeIfAbsent(uuid, k -> new LongAdder()).add(cents);
+        Pending p = pending.computeIfAbsent(uuid, Pending::new);
+        p.lastActivityMs = System.currentTimeMillis();
+        p.cents.addAndGet(cents);
+        pendingCents.addAndGet(cents);
+        if (p.queued.compareAndSet(false, true)) ready.add(p);
     }
 
     public void deposit(org.bukkit.entity.Player player, double amount) {
@@ -61,28 +102,110 @@ public class EconomyUtil {
 
     public void flushAll() {
         if (!enabled || economy == null) return;
-        while (!pendingCents.isEmpty()) flush(Integer.MAX_VALUE);
+        while (!flushing.compareAndSet(false, true)) Thread.onSpinWait();
+        try {
+            while (!ready.isEmpty()) drain(Long.MAX_VALUE);
+        } finally {
+            flushing.set(false);
+        }
     }
 
-    private void flush(int maxPlayers) {
-        if (!enabled || economy == null) return;
+    private void tick() {
+        if (!flushing.compareAndSet(false, true)) return;
+        try {
+            if (!backlog && --ticksUntilRound > 0) return;
+            ticksUntilRound = intervalTicks;
+            if (ready.isEmpty()) {
+                backlog = false;
+                return;
+            }
+            long start = System.nanoTime();
+            backlog = drain(start + budgetNanos);
+            long elapsed = System.nanoTime() - start;
+            lastFlushNanos = elapsed;
+            if (elapsed > maxFlushNanos) maxFlushNanos = elapsed;
+            if (elapsed > budgetNanos) overBudgetTicks.incrementAndGet();
+        } finally {
+            flushing.set(false);
+        }
+    }
 
-        int budget = Math.max(1, maxPlayers);
-        Iterator<Map.Entry<UUID, LongAdder>> it = pendingCents.entrySet().iterator();
+    private boolean drain(long deadlineNanos) {
+        Pending p;
+        while ((p = ready.poll()) != null) {
+            p.queued.set(false);
+            long cents = p.cents.getAndSet(0L);
+            if (cents > 0) {
+                try {
+                    economy.depositPlayer(p.handle(), cents / 100.0);
+                    depositedCents.addAndGet(cents);
+                    depositCalls.incrementAndGet();
+                } catch (Exception ex) {
+                    plugin.getLogger().warning("Deposit of " + (cents / 100.0) + " to " + p.uuid + " failed: " + ex.getMessage());
+                } finally {
+                    pendingCents.addAndGet(-cents);
+                }
+            }
+            if (System.nanoTime() - deadlineNanos >= 0) return !ready.isEmpty();
+        }
+        return false;
+    }
 
-        while (it.hasNext() && budget-- > 0) {
-            Map.Entry<UUID, LongAdder> e = it.next();
-            long cents = e.getValue().sumThenReset();
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - IDLE_EVICT_MS;
+        pending.values().removeIf(p -> !p.queued.get() && p.cents.get() == 0L && p.lastActivityMs < cutoff);
+    }
 
-            if (cents <= 0) {
-                if (e.getValue().sum() == 0) it.remove();
-                continue;
-            }
+    public double getPendingTotal() {
+        return pendingCents.get() / 100.0;
+    }
 
-            OfflinePlayer p = Bukkit.getOfflinePlayer(e.getKey());
-            economy.depositPlayer(p, cents / 100.0);
+    public int getPendingPlayers() {
+        return pending.size();
+    }
 
-            if (e.getValue().sum() == 0) it.remove();
+    public long getDepositedCents() {
+        return depositedCents.get();
+    }
+
+    public long getDepositCalls() {
+        return depositCalls.get();
+    }
+
+    public long getLastFlushNanos() {
+        return lastFlushNanos;
+    }
+
+    public long getMaxFlushNanos() {
+        return maxFlushNanos;
+    }
+
+    public long getOverBudgetTicks() {
+        return overBudgetTicks.get();
+    }
+
+    public boolean isAsyncFlush() {
+        return asyncFlush;
+    }
+
+    private static final class Pending {
+        private final UUID uuid;
+        private final AtomicLong cents = new AtomicLong();
+        private final AtomicBoolean queued = new AtomicBoolean(false);
+        private volatile long lastActivityMs;
+        private OfflinePlayer handle;
+
+        Pending(UUID uuid) {
+            this.uuid = uuid;
+        }
+
+        OfflinePlayer handle() {
+            OfflinePlayer h = handle;
+            if (h == null) {
+                h = Bukkit.getOfflinePlayer(uuid);
+                handle = h;
+            }
+            return h;
         }
     }
 }
@@ -0,0 +1,154 @@
+package me.perch.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public final class IoExecutor implements Executor {
+
+    private final ExecutorService threads = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("PerchJobs-IO-", 0).factory());
+    private final Semaphore permits;
+    private final int permitCount;
+    private final int maxQueued;
+    private final Logger logger;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram poolWait = new LatencyHistogram();
+    private final LatencyHistogram execution = new LatencyHistogram();
+
+    private volatile boolean closed;
+
+    public IoExecutor(int permits, int maxQueued, Logger logger) {
+        this.permitCount = Math.max(1, permits);
+        this.permits = new Semaphore(permitCount, true);
+        this.maxQueued = Math.max(1, maxQueued);
+        this.logger = logger;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (closed) throw new RejectedExecutionException("I/O executor is shut down");
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejected.increment();
+            throw new RejectedExecutionException("I/O queue is full (" + maxQueued + " tasks)");
+        }
+        long submitted = System.nanoTime();
+        try {
+            threads.execute(() -> run(task, submitted));
+        } catch (RejectedExecutionException ex) {
+            queued.decrementAndGet();
+            rejected.increment();
+            throw ex;
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    private void run(Runnable task, long submitted) {
+        long started = System.nanoTime();
+        queueWait.recordNanos(started - submitted);
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            queued.decrementAndGet();
+            failed.increment();
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        long acquired = System.nanoTime();
+        poolWait.recordNanos(acquired - started);
+        queued.decrementAndGet();
+        active.incrementAndGet();
+        try {
+            task.run();
+            completed.increment();
+        } catch (Throwable t) {
+            failed.increment();
+            logger.log(Level.WARNING, "Unhandled error in an I/O task", t);
+        } finally {
+            active.decrementAndGet();
+            permits.release();
+            execution.recordNanos(System.nanoTime() - acquired);
+        }
+    }
+
+    public boolean shutdown(long timeoutMs) {
+        closed = true;
+        threads.shutdown();
+        try {
+            if (threads.awaitTermination(Math.max(0L, timeoutMs), TimeUnit.MILLISECONDS)) return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.warning("Timed out draining I/O tasks on shutdown; " + (queued.get() + active.get()) + " task(s) still running.");
+        threads.shutdownNow();
+        return false;
+    }
+
+    public int getPermits() {
+        return permitCount;
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    public LatencyHistogram getPoolWait() {
+        return poolWait;
+    }
+
+    public LatencyHistogram getExecution() {
+        return execution;
+    }
+}
@@ -0,0 +1,136 @@
+package me.perch.util;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.Style;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+public final class MessageTemplate {
+
+    public enum Slot {
+        JOB("%job%"),
+        LEVEL("%level%");
+
+        private final String token;
+
+        Slot(String token) {
+            this.token = token;
+        }
+
+        public String token() {
+            return token;
+        }
+    }
+
+    private record Part(Component literal, Slot slot, Style style) {}
+
+    public static final MessageTemplate EMPTY = new MessageTemplate(null, 0, null, null, null);
+
+    private final Component component;
+    private final int slotMask;
+    private final Part[] parts;
+    private final String raw;
+    private final Function<String, Component> parser;
+
+    private MessageTemplate(Component component, int slotMask, Part[] parts, String raw, Function<String, Component> parser) {
+        this.component = component;
+        this.slotMask = slotMask;
+        this.parts = parts;
+        this.raw = raw;
+        this.parser = parser;
+    }
+
+    static MessageTemplate compile(String raw, Function<String, Component> parser) {
+        if (raw == null || raw.isEmpty()) return EMPTY;
+        Component component = parser.apply(raw);
+        int mask = 0;
+        for (Slot slot : Slot.values()) {
+            if (raw.contains(slot.token)) mask |= 1 << slot.ordinal();
+        }
+        if (mask == 0 || component == null) return new MessageTemplate(component, mask, null, null, null);
+
+        List<Part> parts = new ArrayList<>();
+        flatten(component, Style.empty(), parts);
+        int found = 0;
+        for (Part part : parts) {
+            if (part.slot() != null) found |= 1 << part.slot().ordinal();
+        }
+        if (found != mask) return new MessageTemplate(component, mask, null, raw, parser);
+        return new MessageTemplate(component, mask, parts.toArray(new Part[0]), null, null);
+    }
+
+    private static void flatten(Component node, Style inherited, List<Part> out) {
+        Style style = node.style().merge(inherited, Style.Merge.Strategy.IF_ABSENT_ON_TARGET);
+        if (node instanceof TextComponent text) {
+            split(text.content(), style, out);
+        } else {
+            out.add(new Part(node.children(List.of()).style(style), null, null));
+        }
+        for (Component child : node.children()) flatten(child, style, out);
+    }
+
+    private static void split(String content, Style style, List<Part> out) {
+        int from = 0;
+        while (from < content.length()) {
+            int at = -1;
+            Slot found = null;
+            for (Slot slot : Slot.values()) {
+                int i = content.indexOf(slot.token, from);
+                if (i >= 0 && (at < 0 || i < at)) {
+                    at = i;
+                    found = slot;
+                }
+            }
+            if (found == null) {
+                out.add(new Part(Component.text(content.substring(from), style), null, null));
+                return;
+            }
+            if (at > from) out.add(new Part(Component.text(content.substring(from, at), style), null, null));
+            out.add(new Part(null, found, style));
+            from = at + found.token.length();
+        }
+    }
+
+    public boolean isEmpty() {
+        return component == null;
+    }
+
+    public boolean has(Slot slot) {
+        return (slotMask & (1 << slot.ordinal())) != 0;
+    }
+
+    public Component render() {
+        return component;
+    }
+
+    public Component render(Slot slot, String value) {
+        return fill(slot, value, null, null);
+    }
+
+    public Component render(Slot first, String firstValue, Slot second, String secondValue) {
+        return fill(first, firstValue, second, secondValue);
+    }
+
+    private Component fill(Slot first, String firstValue, Slot second, String secondValue) {
+        if (raw != null) return reparse(first, firstValue, second, secondValue);
+        if (parts == null) return component;
+        TextComponent.Builder out = Component.text();
+        for (Part part : parts) {
+            if (part.slot() == null) out.append(part.literal());
+            else if (part.slot() == first) out.append(Component.text(firstValue, part.style()));
+            else if (part.slot() == second) out.append(Component.text(secondValue, part.style()));
+            else out.append(Component.text(part.slot().token, part.style()));
+        }
+        return out.build();
+    }
+
+    private Component reparse(Slot first, String firstValue, Slot second, String secondValue) {
+        String text = raw;
+        if (first != null) text = text.replace(first.token, firstValue);
+        if (second != null) text = text.replace(second.token, secondValue);
+        return parser.apply(text);
+    }
+}
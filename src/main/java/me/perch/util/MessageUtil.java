@@ -4,22 +4,67 @@ import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class MessageUtil {
 
+    private static final Map<String, String> DEFAULTS = Map.of("level-up", "Level Up!");
+
     private final MiniMessage miniMessage;
     private final LegacyComponentSerializer legacyAmp;
     private final LegacyComponentSerializer legacySection;
     private final Pattern hexPattern = Pattern.compile("&#([A-Fa-f0-9]{6})");
 
+    private volatile Map<String, MessageTemplate> templates = Map.of();
+    private volatile Map<String, List<MessageTemplate>> templateLists = Map.of();
+
     public MessageUtil() {
         this.miniMessage = MiniMessage.miniMessage();
         this.legacyAmp = LegacyComponentSerializer.legacyAmpersand();
         this.legacySection = LegacyComponentSerializer.legacySection();
     }
 
+    public void load(ConfigurationSection messages) {
+        Map<String, MessageTemplate> compiled = new HashMap<>();
+        Map<String, List<MessageTemplate>> compiledLists = new HashMap<>();
+
+        for (Map.Entry<String, String> e : DEFAULTS.entrySet()) {
+            compiled.put(e.getKey(), compile(e.getValue()));
+        }
+
+        for (String key : messages.getKeys(true)) {
+            if (messages.isString(key)) {
+                compiled.put(key, compile(messages.getString(key)));
+            } else if (messages.isList(key)) {
+                List<MessageTemplate> lines = new ArrayList<>();
+                for (String line : messages.getStringList(key)) lines.add(compile(line));
+                compiledLists.put(key, List.copyOf(lines));
+            }
+        }
+
+        templates = Map.copyOf(compiled);
+        templateLists = Map.copyOf(compiledLists);
+    }
+
+    public MessageTemplate compile(String raw) {
+        return MessageTemplate.compile(raw, this::parse);
+    }
+
+    public MessageTemplate template(String key) {
+        return templates.getOrDefault(key, MessageTemplate.EMPTY);
+    }
+
+    public List<MessageTemplate> templates(String key) {
+        return templateLists.getOrDefault(key, List.of());
+    }
+
     public Component parse(String input) {
         if (input == null || input.isEmpty()) return Component.empty();
 
@@ -49,4 +94,20 @@ public class MessageUtil {
         if (message == null || message.isEmpty()) return;
         sender.sendMessage(parse(message));
     }
-}
\ No newline at end of file
+
+    public void send(CommandSender sender, String key) {
+        MessageTemplate template = template(key);
+        if (!template.isEmpty()) sender.sendMessage(template.render());
+    }
+
+    public void send(CommandSender sender, String key, MessageTemplate.Slot slot, String value) {
+        MessageTemplate template = template(key);
+        if (!template.isEmpty()) sender.sendMessage(template.render(slot, value));
+    }
+
+    public void sendLines(CommandSender sender, String key) {
+        for (MessageTemplate line : templates(key)) {
+            if (!line.isEmpty()) sender.sendMessage(line.render());
+        }
+    }
+}
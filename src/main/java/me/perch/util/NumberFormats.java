@@ -0,0 +1,55 @@
+package me.perch.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public final class NumberFormats {
+
+    private static final String[] SMALL = new String[1024];
+    private static final String[] ZERO = {"0", "0.0", "0.00", "0.000"};
+    private static final long[] POW10 = {1L, 10L, 100L, 1000L};
+    private static final double MAX_FAST = 1e15;
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[24]);
+
+    static {
+        for (int i = 0; i < SMALL.length; i++) SMALL[i] = Integer.toString(i).intern();
+    }
+
+    private NumberFormats() {}
+
+    public static String integer(long v) {
+        return (v >= 0 && v < SMALL.length) ? SMALL[(int) v] : Long.toString(v);
+    }
+
+    public static String rounded(double v) {
+        if (Double.isNaN(v) || Double.isInfinite(v)) return ZERO[0];
+        return integer(Math.round(v));
+    }
+
+    public static String fixed(double v, int decimals) {
+        if (Double.isNaN(v) || Double.isInfinite(v)) return ZERO[decimals];
+
+        double scaled = Math.abs(v) * POW10[decimals];
+        double frac = scaled - Math.floor(scaled);
+        if (scaled >= MAX_FAST || Math.abs(frac - 0.5) <= 4 * Math.ulp(scaled)) {
+            return BigDecimal.valueOf(v).setScale(decimals, RoundingMode.HALF_UP).toPlainString();
+        }
+
+        long n = (long) (scaled + 0.5);
+        char[] buf = BUFFER.get();
+        int pos = buf.length;
+
+        for (int d = 0; d < decimals; d++) {
+            buf[--pos] = (char) ('0' + (n % 10));
+            n /= 10;
+        }
+        if (decimals > 0) buf[--pos] = '.';
+        do {
+            buf[--pos] = (char) ('0' + (n % 10));
+            n /= 10;
+        } while (n != 0);
+        if (v < 0) buf[--pos] = '-';
+
+        return new String(buf, pos, buf.length - pos);
+    }
+}
@@ -1,67 +1,245 @@
 package me.perch.util;
 
-import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class PlacedBlockTracker {
 
+    private static final long EMPTY = 0L;
+    private static final long ZERO_KEY = 0x5DEECE66DL;
+    private static final int STRIPES = 16;
+    private static final long TICK_MS = 250L;
+
     private final long ttlMs;
-    private final Map<Long, Long> placedAt = new ConcurrentHashMap<>();
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final Slot[] wheel;
     private final Map<UUID, Long> worldSalt = new ConcurrentHashMap<>();
 
     public PlacedBlockTracker(long ttlMs) {
         this.ttlMs = Math.max(1L, ttlMs);
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+
+        int slots = (int) ((this.ttlMs + TICK_MS - 1) / TICK_MS) + 2;
+        this.wheel = new Slot[slots];
+        for (int i = 0; i < slots; i++) wheel[i] = new Slot();
     }
 
     public void record(Block block) {
-        placedAt.put(key(block.getLocation()), System.currentTimeMillis());
+        record(key(block), System.currentTimeMillis());
     }
 
     public boolean isRecent(Block block) {
-        long k = key(block.getLocation());
-        Long t = placedAt.get(k);
-        if (t == null) return false;
-        long now = System.currentTimeMillis();
-        if (now - t <= ttlMs) return true;
-        placedAt.remove(k, t);
-        return false;
+        return isRecent(key(block), System.currentTimeMillis());
+    }
+
+    boolean isRecent(long k, long now) {
+        Stripe s = stripe(k);
+        synchronized (s) {
+            long t = s.get(k);
+            if (t == Long.MIN_VALUE) return false;
+            if (now - t <= ttlMs) return true;
+            s.remove(k);
+            return false;
+        }
     }
 
     public boolean shouldBlockAndRecord(Block block) {
-        long k = key(block.getLocation());
+        long k = key(block);
         long now = System.currentTimeMillis();
-        Long prev = placedAt.put(k, now);
-        if (prev == null) return false;
-        return now - prev <= ttlMs;
+        long prev;
+        Stripe s = stripe(k);
+        synchronized (s) {
+            prev = s.put(k, now);
+        }
+        schedule(k, now);
+        return prev != Long.MIN_VALUE && now - prev <= ttlMs;
     }
 
     public void cleanup() {
         long now = System.currentTimeMillis();
-        placedAt.entrySet().removeIf(e -> now - e.getValue() > ttlMs);
+        long expiredTick = (now - ttlMs) / TICK_MS - 1;
+        for (Slot slot : wheel) {
+            synchronized (slot) {
+                if (slot.count > 0 && slot.tick <= expiredTick) expire(slot, now);
+            }
+        }
+    }
+
+    public int size() {
+        int total = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                total += s.size;
+            }
+        }
+        return total;
     }
 
-    private long key(Location loc) {
-        World w = loc.getWorld();
-        if (w == null) return 0L;
+    void record(long k, long now) {
+        Stripe s = stripe(k);
+        synchronized (s) {
+            s.put(k, now);
+        }
+        schedule(k, now);
+    }
+
+    private void schedule(long k, long now) {
+        long tick = now / TICK_MS;
+        Slot slot = wheel[(int) Math.floorMod(tick, (long) wheel.length)];
+        synchronized (slot) {
+            if (slot.tick != tick) {
+                if (slot.count > 0) expire(slot, now);
+                slot.tick = tick;
+            }
+            slot.add(k);
+        }
+    }
+
+    private void expire(Slot slot, long now) {
+        long[] keys = slot.keys;
+        for (int i = 0; i < slot.count; i++) {
+            long k = keys[i];
+            Stripe s = stripe(k);
+            synchronized (s) {
+                long t = s.get(k);
+                if (t != Long.MIN_VALUE && now - t > ttlMs) s.remove(k);
+            }
+        }
+        slot.clear();
+    }
+
+    private Stripe stripe(long k) {
+        return stripes[(int) (mix(k) >>> 60)];
+    }
+
+    private static long mix(long k) {
+        long h = k * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private long key(Block block) {
+        World w = block.getWorld();
+        if (w == null) return ZERO_KEY;
 
         long salt = worldSalt.computeIfAbsent(w.getUID(), u -> {
             long s = u.getMostSignificantBits() ^ u.getLeastSignificantBits();
             return s == 0L ? 0x9E3779B97F4A7C15L : s;
         });
 
-        long x = loc.getBlockX();
-        long y = loc.getBlockY();
-        long z = loc.getBlockZ();
+        long x = block.getX();
+        long y = block.getY();
+        long z = block.getZ();
 
         long k1 = (x & 0x3FFFFFFL) << 38;
         long k2 = (z & 0x3FFFFFFL) << 12;
         long k3 = (y & 0xFFFL);
 
-        return (k1 | k2 | k3) ^ salt;
+        long k = (k1 | k2 | k3) ^ salt;
+        return k == EMPTY ? ZERO_KEY : k;
+    }
+
+    private static final class Stripe {
+        private long[] keys = new long[64];
+        private long[] values = new long[64];
+        private int size;
+
+        long get(long k) {
+            int mask = keys.length - 1;
+            int i = (int) mix(k) & mask;
+            while (true) {
+                long cur = keys[i];
+                if (cur == EMPTY) return Long.MIN_VALUE;
+                if (cur == k) return values[i];
+                i = (i + 1) & mask;
+            }
+        }
+
+        long put(long k, long v) {
+            if ((size + 1) * 2 > keys.length) resize(keys.length * 2);
+            int mask = keys.length - 1;
+            int i = (int) mix(k) & mask;
+            while (true) {
+                long cur = keys[i];
+                if (cur == EMPTY) {
+                    keys[i] = k;
+                    values[i] = v;
+                    size++;
+                    return Long.MIN_VALUE;
+                }
+                if (cur == k) {
+                    long prev = values[i];
+                    values[i] = v;
+                    return prev;
+                }
+                i = (i + 1) & mask;
+            }
+        }
+
+        void remove(long k) {
+            int mask = keys.length - 1;
+            int i = (int) mix(k) & mask;
+            while (true) {
+                long cur = keys[i];
+                if (cur == EMPTY) return;
+                if (cur == k) break;
+                i = (i + 1) & mask;
+            }
+
+            int gap = i;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                long cur = keys[j];
+                if (cur == EMPTY) break;
+                int home = (int) mix(cur) & mask;
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = cur;
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            keys[gap] = EMPTY;
+            values[gap] = 0L;
+            size--;
+
+            if (keys.length > 64 && size * 8 < keys.length) resize(keys.length / 2);
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[capacity];
+            values = new long[capacity];
+            int mask = capacity - 1;
+            for (int n = 0; n < oldKeys.length; n++) {
+                long k = oldKeys[n];
+                if (k == EMPTY) continue;
+                int i = (int) mix(k) & mask;
+                while (keys[i] != EMPTY) i = (i + 1) & mask;
+                keys[i] = k;
+                values[i] = oldValues[n];
+            }
+        }
+    }
+
+    private static final class Slot {
+        private long tick = Long.MIN_VALUE;
+        private long[] keys = new long[16];
+        private int count;
+
+        void add(long k) {
+            if (count == keys.length) keys = Arrays.copyOf(keys, count * 2);
+            keys[count++] = k;
+        }
+
+        void clear() {
+            count = 0;
+            if (keys.length > 4096) keys = new long[16];
+        }
     }
 }
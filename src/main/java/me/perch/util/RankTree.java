@@ -0,0 +1,201 @@
+package me.perch.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class RankTree {
+
+    private final Map<UUID, Node> index = new HashMap<>();
+    private Node root;
+    private long seed = 0x2545F4914F6CDD1DL;
+
+    public synchronized boolean update(UUID uuid, int level, double xp) {
+        Node node = index.get(uuid);
+        if (node != null) {
+            if (node.level == level && node.xp == xp) return false;
+            root = delete(root, node);
+            node.level = level;
+            node.xp = xp;
+            node.left = null;
+            node.right = null;
+            node.size = 1;
+        } else {
+            node = new Node(uuid, level, xp, nextPriority());
+            index.put(uuid, node);
+        }
+        root = insert(root, node);
+        return true;
+    }
+
+    public synchronized boolean seed(UUID uuid, int level, double xp) {
+        if (index.containsKey(uuid)) return false;
+        Node node = new Node(uuid, level, xp, nextPriority());
+        index.put(uuid, node);
+        root = insert(root, node);
+        return true;
+    }
+
+    public synchronized boolean remove(UUID uuid) {
+        Node node = index.remove(uuid);
+        if (node == null) return false;
+        root = delete(root, node);
+        return true;
+    }
+
+    public synchronized int size() {
+        return size(root);
+    }
+
+    public synchronized int rank(UUID uuid) {
+        Node node = index.get(uuid);
+        if (node == null) return 0;
+
+        int before = 0;
+        Node cur = root;
+        while (cur != null) {
+            int c = compare(node, cur);
+            if (c < 0) {
+                cur = cur.left;
+            } else if (c > 0) {
+                before += size(cur.left) + 1;
+                cur = cur.right;
+            } else {
+                before += size(cur.left);
+                break;
+            }
+        }
+        return before + 1;
+    }
+
+    public synchronized UUID select(int rank) {
+        if (rank < 1 || rank > size(root)) return null;
+        int k = rank - 1;
+        Node cur = root;
+        while (cur != null) {
+            int leftSize = size(cur.left);
+            if (k < leftSize) {
+                cur = cur.left;
+            } else if (k == leftSize) {
+                return cur.uuid;
+            } else {
+                k -= leftSize + 1;
+                cur = cur.right;
+            }
+        }
+        return null;
+    }
+
+    public record Ranked(UUID uuid, int level, double xp) {}
+
+    public synchronized List<Ranked> topEntries(int limit) {
+        List<Ranked> out = new ArrayList<>(Math.max(0, Math.min(limit, size(root))));
+        collectEntries(root, out, limit);
+        return out;
+    }
+
+    private static void collectEntries(Node node, List<Ranked> out, int limit) {
+        if (node == null || out.size() >= limit) return;
+        collectEntries(node.left, out, limit);
+        if (out.size() < limit) out.add(new Ranked(node.uuid, node.level, node.xp));
+        collectEntries(node.right, out, limit);
+    }
+
+    private int nextPriority() {
+        long x = seed;
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        seed = x;
+        return (int) (x >>> 32);
+    }
+
+    private static int size(Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static void pull(Node n) {
+        n.size = 1 + size(n.left) + size(n.right);
+    }
+
+    private static int compare(Node a, Node b) {
+        if (a.level != b.level) return a.level > b.level ? -1 : 1;
+        int c = Double.compare(b.xp, a.xp);
+        if (c != 0) return c;
+        c = Long.compare(a.uuid.getMostSignificantBits(), b.uuid.getMostSignificantBits());
+        if (c != 0) return c;
+        return Long.compare(a.uuid.getLeastSignificantBits(), b.uuid.getLeastSignificantBits());
+    }
+
+    private static Node insert(Node root, Node node) {
+        if (root == null) return node;
+        if (node.priority > root.priority) {
+            Node[] parts = split(root, node);
+            node.left = parts[0];
+            node.right = parts[1];
+            pull(node);
+            return node;
+        }
+        if (compare(node, root) < 0) root.left = insert(root.left, node);
+        else root.right = insert(root.right, node);
+        pull(root);
+        return root;
+    }
+
+    private static Node delete(Node root, Node node) {
+        if (root == null) return null;
+        if (root == node) return merge(root.left, root.right);
+        if (compare(node, root) < 0) root.left = delete(root.left, node);
+        else root.right = delete(root.right, node);
+        pull(root);
+        return root;
+    }
+
+    private static Node[] split(Node root, Node key) {
+        if (root == null) return new Node[2];
+        if (compare(root, key) < 0) {
+            Node[] parts = split(root.right, key);
+            root.right = parts[0];
+            pull(root);
+            parts[0] = root;
+            return parts;
+        }
+        Node[] parts = split(root.left, key);
+        root.left = parts[1];
+        pull(root);
+        parts[1] = root;
+        return parts;
+    }
+
+    private static Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            pull(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        pull(b);
+        return b;
+    }
+
+    private static final class Node {
+        final UUID uuid;
+        final int priority;
+        int level;
+        double xp;
+        int size = 1;
+        Node left;
+        Node right;
+
+        Node(UUID uuid, int level, double xp, int priority) {
+            this.uuid = uuid;
+            this.level = level;
+            this.xp = xp;
+            this.priority = priority;
+        }
+    }
+}
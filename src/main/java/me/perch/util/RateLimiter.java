@@ -0,0 +1,53 @@
+package me.perch.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public final class RateLimiter {
+
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private static final int TOKEN_BITS = 28;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long TOKEN_SCALE = 256L;
+    private static final long EPOCH_MS = System.currentTimeMillis() - 1L;
+
+    private RateLimiter() {}
+
+    public static boolean tryWindow(AtomicLongArray state, int slot, int maxPerSecond, long nowMs) {
+        long second = nowMs / 1000L;
+        while (true) {
+            long cur = state.get(slot);
+            long next;
+            if ((cur >>> COUNT_BITS) != second) {
+                next = (second << COUNT_BITS) | 1L;
+            } else {
+                if ((cur & COUNT_MASK) >= maxPerSecond) return false;
+                next = cur + 1L;
+            }
+            if (state.compareAndSet(slot, cur, next)) return true;
+        }
+    }
+
+    public static boolean tryTokenBucket(AtomicLongArray state, int slot, int ratePerSecond, int burst, long nowMs) {
+        long now = Math.max(1L, nowMs - EPOCH_MS);
+        long capacity = Math.min(TOKEN_MASK, Math.max(1L, burst) * TOKEN_SCALE);
+
+        while (true) {
+            long cur = state.get(slot);
+            long tokens;
+            if (cur == 0L) {
+                tokens = capacity;
+            } else {
+                long last = cur >>> TOKEN_BITS;
+                long elapsed = Math.min(1L << 30, Math.max(0L, now - last));
+                long refill = elapsed * Math.max(1, ratePerSecond) * TOKEN_SCALE / 1000L;
+                tokens = Math.min(capacity, (cur & TOKEN_MASK) + refill);
+            }
+            if (tokens < TOKEN_SCALE) return false;
+
+            long next = (now << TOKEN_BITS) | (tokens - TOKEN_SCALE);
+            if (state.compareAndSet(slot, cur, next)) return true;
+        }
+    }
+}
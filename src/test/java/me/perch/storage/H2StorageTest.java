@@ -0,0 +1,17 @@
+package me.perch.storage;
+
+import me.perch.metrics.MetricsRegistry;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.util.logging.Logger;
+
+class H2StorageTest extends SqlStorageContract {
+
+    @Override
+    SqlStorage open(YamlConfiguration settings, File dataFolder, MetricsRegistry metrics, Logger logger) {
+        settings.set("storage.h2.file", "jobs");
+        settings.set("storage.h2.pool-size", 2);
+        return new H2Storage(settings, dataFolder, metrics, logger);
+    }
+}
@@ -0,0 +1,19 @@
+package me.perch.storage;
+
+import me.perch.metrics.MetricsRegistry;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+class MySqlStorageTest extends SqlStorageContract {
+
+    @Override
+    SqlStorage open(YamlConfiguration settings, File dataFolder, MetricsRegistry metrics, Logger logger) {
+        settings.set("storage.mysql.url", "jdbc:h2:mem:perchjobs-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=DAY");
+        settings.set("storage.mysql.username", "sa");
+        settings.set("storage.mysql.pool-size", 2);
+        return new MySqlStorage(settings, dataFolder, metrics, logger);
+    }
+}
@@ -0,0 +1,223 @@
+package me.perch.storage;
+
+import me.perch.data.JobProfile;
+import me.perch.metrics.MetricsRegistry;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+abstract class SqlStorageContract {
+
+    @TempDir
+    Path dir;
+
+    SqlStorage storage;
+
+    abstract SqlStorage open(YamlConfiguration settings, File dataFolder, MetricsRegistry metrics, Logger logger);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        YamlConfiguration settings = new YamlConfiguration();
+        storage = open(settings, dir.toFile(), new MetricsRegistry(false), Logger.getLogger("PerchJobsTest"));
+        storage.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+    }
+
+    private static ProfileStore.ProfileRecord record(UUID uuid, long seq, JobProfile profile) {
+        return new ProfileStore.ProfileRecord(uuid, seq, ProfileStore.dirtyRows(profile, profile.takeDirtyJobs()));
+    }
+
+    private static JobProfile profile(String job, int level, double xp) {
+        JobProfile profile = new JobProfile();
+        profile.joinJob(job);
+        profile.setLevel(job, level);
+        profile.setXp(job, xp);
+        return profile;
+    }
+
+    @Test
+    void savedProfilesLoadBack() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        JobProfile profile = profile("miner", 7, 12.5);
+        profile.setLevel("farmer", 3);
+        storage.saveProfiles(List.of(record(uuid, 42L, profile)));
+
+        JobProfile loaded = storage.loadProfiles(List.of(uuid)).get(uuid);
+        assertEquals(7, loaded.getLevel("miner"));
+        assertEquals(12.5, loaded.getXp("miner"));
+        assertTrue(loaded.isJoined("miner"));
+        assertEquals(3, loaded.getLevel("farmer"));
+        assertFalse(loaded.isJoined("farmer"));
+        assertEquals(42L, loaded.getJournalSeq());
+        assertEquals(42L, storage.getMaxJournalSeq());
+        assertEquals(42L, storage.getJournalSeq(uuid));
+        assertEquals(0L, storage.getJournalSeq(UUID.randomUUID()));
+    }
+
+    @Test
+    void savingAgainUpdatesOnlyDirtyJobs() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        JobProfile profile = profile("miner", 2, 1.0);
+        profile.setLevel("farmer", 4);
+        storage.saveProfiles(List.of(record(uuid, 1L, profile)));
+
+        profile.setLevel("miner", 9);
+        storage.saveProfiles(List.of(record(uuid, 5L, profile)));
+
+        JobProfile loaded = storage.loadProfiles(List.of(uuid)).get(uuid);
+        assertEquals(9, loaded.getLevel("miner"));
+        assertEquals(4, loaded.getLevel("farmer"));
+        assertEquals(5L, loaded.getJournalSeq());
+    }
+
+    @Test
+    void staleSaveDoesNotOverwriteNewerRows() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        storage.saveProfiles(List.of(record(uuid, 10L, profile("miner", 5, 2.0))));
+        storage.saveProfiles(List.of(record(uuid, 3L, profile("miner", 1, 0.5))));
+
+        JobProfile loaded = storage.loadProfiles(List.of(uuid)).get(uuid);
+        assertEquals(5, loaded.getLevel("miner"));
+        assertEquals(2.0, loaded.getXp("miner"));
+        assertEquals(10L, loaded.getJournalSeq());
+    }
+
+    @Test
+    void loadsMoreProfilesThanOneInClause() throws Exception {
+        int players = storage.maxBatchSize() * 2 + 7;
+        List<ProfileStore.ProfileRecord> records = new ArrayList<>(players);
+        Map<UUID, Integer> levels = new HashMap<>();
+        for (int i = 0; i < players; i++) {
+            UUID uuid = UUID.randomUUID();
+            levels.put(uuid, i % 50 + 1);
+            records.add(record(uuid, i, profile("miner", i % 50 + 1, 0.0)));
+        }
+        storage.saveProfiles(records);
+
+        List<UUID> wanted = new ArrayList<>(levels.keySet());
+        UUID unknown = UUID.randomUUID();
+        wanted.add(unknown);
+        Map<UUID, JobProfile> loaded = storage.loadProfiles(wanted);
+
+        assertEquals(players, loaded.size());
+        assertNull(loaded.get(unknown));
+        levels.forEach((uuid, level) -> assertEquals(level, loaded.get(uuid).getLevel("miner")));
+    }
+
+    @Test
+    void scansAndRanksLevels() throws Exception {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        storage.saveProfiles(List.of(
+                record(first, 1L, profile("miner", 10, 5.0)),
+                record(second, 2L, profile("miner", 10, 1.0)),
+                record(third, 3L, profile("farmer", 4, 0.0))));
+
+        Map<UUID, Integer> scanned = new HashMap<>();
+        int rows = storage.scanLevels((uuid, jobId, level, xp) -> scanned.merge(uuid, level, Integer::sum));
+        assertEquals(3, rows);
+        assertEquals(Map.of(first, 10, second, 10, third, 4), scanned);
+
+        List<LeaderboardStore.RankEntry> top = storage.top("miner", 0, 10);
+        assertEquals(List.of(first, second), top.stream().map(LeaderboardStore.RankEntry::uuid).toList());
+        assertEquals(5.0, top.get(0).xp());
+        assertEquals(List.of(second), storage.top("miner", 1, 10).stream().map(LeaderboardStore.RankEntry::uuid).toList());
+        assertEquals(2, storage.count("miner"));
+        assertEquals(0, storage.count("fisher"));
+    }
+
+    @Test
+    void accumulatesAndPrunesDailyXp() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        storage.addDailyXp(List.of(
+                new LeaderboardStore.DailyXp(uuid, "miner", 100L, 2.0),
+                new LeaderboardStore.DailyXp(uuid, "miner", 101L, 3.0)));
+        storage.addDailyXp(List.of(new LeaderboardStore.DailyXp(uuid, "miner", 101L, 4.0)));
+
+        Map<Long, Double> byDay = new HashMap<>();
+        assertEquals(1, storage.scanDailyXp(101L, (u, jobId, day, xp) -> byDay.put(day, xp)));
+        assertEquals(Map.of(101L, 7.0), byDay);
+
+        assertEquals(1, storage.pruneDailyXp(101L));
+        assertEquals(1, storage.scanDailyXp(0L, (u, jobId, day, xp) -> {}));
+    }
+
+    @Test
+    void migratesLegacyProfilesToJobRows() throws Exception {
+        UUID json = UUID.randomUUID();
+        UUID binary = UUID.randomUUID();
+        UUID broken = UUID.randomUUID();
+        try (Connection conn = storage.getConnection();
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO job_data (uuid, data, profile, journal_seq) VALUES (?, ?, ?, 0)")) {
+            ps.setString(1, json.toString());
+            ps.setString(2, "{\"levels\":{\"miner\":5},\"xp\":{\"miner\":3.0},\"activeJobs\":[\"miner\"]}");
+            ps.setBytes(3, null);
+            ps.executeUpdate();
+            ps.setString(1, binary.toString());
+            ps.setString(2, null);
+            ps.setBytes(3, profile("farmer", 8, 2.5).serialize());
+            ps.executeUpdate();
+            ps.setString(1, broken.toString());
+            ps.setString(2, null);
+            ps.setBytes(3, new byte[] {1, 2, 3});
+            ps.executeUpdate();
+        }
+
+        JobProfile beforeMigration = storage.loadProfiles(List.of(json)).get(json);
+        assertEquals(5, beforeMigration.getLevel("miner"));
+        assertTrue(beforeMigration.isDirty());
+
+        assertEquals(2, storage.migrateLegacyProfiles(1));
+        assertEquals(0, storage.migrateLegacyProfiles(1));
+
+        try (Connection conn = storage.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM job_data WHERE profile IS NOT NULL OR data IS NOT NULL");
+             ResultSet rs = ps.executeQuery()) {
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+
+        Map<UUID, JobProfile> loaded = storage.loadProfiles(List.of(json, binary, broken));
+        assertEquals(5, loaded.get(json).getLevel("miner"));
+        assertEquals(3.0, loaded.get(json).getXp("miner"));
+        assertTrue(loaded.get(json).isJoined("miner"));
+        assertEquals(8, loaded.get(binary).getLevel("farmer"));
+        assertEquals(2.5, loaded.get(binary).getXp("farmer"));
+        assertEquals(0, loaded.get(broken).getJoinedCount());
+
+        try (Connection conn = storage.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT profile FROM job_data_quarantine WHERE uuid=?")) {
+            ps.setString(1, broken.toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                assertTrue(rs.next());
+                assertArrayEquals(new byte[] {1, 2, 3}, rs.getBytes(1));
+            }
+        }
+        assertFalse(loaded.get(json).isDirty());
+    }
+}
@@ -0,0 +1,218 @@
+package me.perch.sync;
+
+import me.perch.data.JobProfile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProfileSyncTest {
+
+    private static final long TIMEOUT_MS = 5000L;
+
+    private static final class FakeHost implements ProfileSync.Host {
+        final Map<UUID, JobProfile> active = new ConcurrentHashMap<>();
+        final Set<UUID> evicted = ConcurrentHashMap.newKeySet();
+        final AtomicLong observedSeq = new AtomicLong();
+        final CountDownLatch detached = new CountDownLatch(1);
+        volatile CountDownLatch detachGate = new CountDownLatch(0);
+
+        @Override
+        public JobProfile detach(UUID uuid) {
+            detached.countDown();
+            try {
+                detachGate.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return active.remove(uuid);
+        }
+
+        @Override
+        public void evictOffline(UUID uuid) {
+            evicted.add(uuid);
+        }
+
+        @Override
+        public void observeJournalSeq(long seq) {
+            observedSeq.accumulateAndGet(seq, Math::max);
+        }
+    }
+
+    private final List<String> warnings = new CopyOnWriteArrayList<>();
+    private final FakeHost hostA = new FakeHost();
+    private final FakeHost hostB = new FakeHost();
+    private final UUID uuid = UUID.randomUUID();
+    private String network;
+    private ProfileSync a;
+    private ProfileSync b;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        network = "test-" + UUID.randomUUID();
+        a = open(hostA, "a", TIMEOUT_MS);
+        b = open(hostB, "b", 1000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        a.close();
+        b.close();
+    }
+
+    private ProfileSync open(FakeHost host, String serverId, long handoffTimeoutMs) throws Exception {
+        Logger logger = Logger.getLogger("PerchJobsSyncTest." + network + "." + serverId);
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                warnings.add(serverId + ": " + record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        ProfileSync sync = new ProfileSync(host, new LoopbackBus(network), serverId, handoffTimeoutMs, logger);
+        sync.start();
+        return sync;
+    }
+
+    private static JobProfile profile(int level, long seq) {
+        JobProfile profile = new JobProfile();
+        profile.joinJob("miner");
+        profile.setLevel("miner", level);
+        profile.setXp("miner", 4.5);
+        profile.setJournalSeq(seq);
+        return profile;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) throw new AssertionError("Condition not met within " + TIMEOUT_MS + "ms");
+            Thread.sleep(5L);
+        }
+    }
+
+    private static void drain() throws Exception {
+        String probeNetwork = "drain-" + UUID.randomUUID();
+        CountDownLatch delivered = new CountDownLatch(1);
+        LoopbackBus sender = new LoopbackBus(probeNetwork);
+        LoopbackBus probe = new LoopbackBus(probeNetwork);
+        sender.start(m -> {});
+        probe.start(m -> delivered.countDown());
+        sender.publish(new byte[0]);
+        assertTrue(delivered.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        sender.close();
+        probe.close();
+    }
+
+    private void ownedByA(JobProfile profile) throws Exception {
+        hostA.active.put(uuid, profile);
+        a.announceOwner(uuid, profile);
+        await(() -> b.getKnownOwners() == 1);
+        assertTrue(hostB.evicted.contains(uuid));
+    }
+
+    @Test
+    void claimWhileOnlineIsHandedOffWithoutWaitingForQuit() throws Exception {
+        JobProfile original = profile(12, 30L);
+        ownedByA(original);
+
+        JobProfile received = b.acquire(uuid);
+        assertNotNull(received);
+        assertEquals(12, received.getLevel("miner"));
+        assertEquals(4.5, received.getXp("miner"));
+        assertTrue(received.isJoined("miner"));
+        assertTrue(received.isDirty());
+        assertEquals(30L, received.getJournalSeq());
+        assertEquals(30L, hostB.observedSeq.get());
+        assertFalse(hostA.active.containsKey(uuid));
+
+        b.announceOwner(uuid, received);
+        a.onQuit(uuid, null, false);
+        drain();
+        assertEquals(1, b.getKnownOwners());
+    }
+
+    @Test
+    void releaseWaitsForTheSave() throws Exception {
+        JobProfile profile = profile(5, 7L);
+        ownedByA(profile);
+
+        hostA.active.remove(uuid);
+        a.onQuit(uuid, profile, true);
+        drain();
+        assertEquals(1, b.getKnownOwners());
+
+        a.onSaved(uuid, profile);
+        await(() -> b.getKnownOwners() == 0);
+        assertNull(b.acquire(uuid));
+    }
+
+    @Test
+    void unansweredClaimFallsBackToStorage() throws Exception {
+        ownedByA(profile(3, 1L));
+        a.close();
+
+        long start = System.nanoTime();
+        assertNull(b.acquire(uuid));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(1000L));
+        assertEquals(0, b.getKnownOwners());
+        assertTrue(warnings.stream().anyMatch(w -> w.startsWith("b: No profile handoff from a")));
+    }
+
+    @Test
+    void handoffAfterTheTimeoutIsIgnored() throws Exception {
+        ownedByA(profile(9, 4L));
+        CountDownLatch gate = new CountDownLatch(1);
+        hostA.detachGate = gate;
+
+        assertNull(b.acquire(uuid));
+        assertTrue(hostA.detached.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        gate.countDown();
+
+        await(() -> warnings.stream().anyMatch(w -> w.startsWith("b: Late profile handoff from a")));
+        assertEquals(0, b.getKnownOwners());
+    }
+
+    @Test
+    void restartedServerLearnsExistingOwners() throws Exception {
+        ownedByA(profile(6, 2L));
+        FakeHost hostC = new FakeHost();
+        ProfileSync c = open(hostC, "c", TIMEOUT_MS);
+        try {
+            await(() -> c.getKnownOwners() == 1);
+            JobProfile received = c.acquire(uuid);
+            assertNotNull(received);
+            assertEquals(6, received.getLevel("miner"));
+        } finally {
+            c.close();
+        }
+    }
+}